@@ -5,7 +5,13 @@ import * as syncProtocol from 'y-protocols/sync';
 import * as awarenessProtocol from 'y-protocols/awareness';
 import debounce from 'lodash.debounce';
 import { broadcast } from '../../utils/websocket.js';
-import { loadDocumentContent, saveDocumentContent } from './persistence.js';
+import {
+  appendDocumentUpdate,
+  bearerCredential,
+  loadDocumentUpdates,
+  ownerCredential,
+  saveDocumentSnapshot,
+} from './persistence.js';
 import {
   MSG_SYNC,
   MSG_AWARENESS,
@@ -16,17 +22,91 @@ import {
 } from './handlers.js';
 
 const DEBOUNCE_TIME = 2000;
+const COMPACT_AFTER_UPDATES = Number(process.env.COMPACT_AFTER_UPDATES) || 200;
+const COMPACT_AFTER_BYTES = Number(process.env.COMPACT_AFTER_BYTES) || 1024 * 1024;
+const LOAD_ORIGIN = Symbol('load');
+
+function createUpdateLog() {
+  return { pending: [], lastSeq: 0, count: 0, bytes: 0, compacting: null };
+}
 
-export function createSaveFunction(documentId, documentTokens) {
-  return debounce(async (ydoc) => {
+// Edits are batched per debounce window and appended to the server-side update log as a single
+// merged Yjs update, instead of re-posting the whole document state on every save.
+export function createSaveFunction(documentId, documentTokens, ydoc, log) {
+  return debounce(async () => {
     const token = documentTokens.get(documentId);
-    if (!token) return;
+    if (!token || log.pending.length === 0) return;
+
+    const batch = log.pending;
+    log.pending = [];
+    const update = batch.length === 1 ? batch[0] : Y.mergeUpdates(batch);
+
+    let seq;
+    try {
+      seq = await appendDocumentUpdate(documentId, token, update);
+    } catch {
+      log.pending = batch.concat(log.pending);
+      return;
+    }
+
+    log.lastSeq = Math.max(log.lastSeq, seq);
+    log.count += 1;
+    log.bytes += update.byteLength;
 
-    const state = Y.encodeStateAsUpdate(ydoc);
-    await saveDocumentContent(documentId, token, state);
+    if (log.count >= COMPACT_AFTER_UPDATES || log.bytes >= COMPACT_AFTER_BYTES) {
+      await compactEntry(documentId, bearerCredential(token), ydoc, log);
+    }
   }, DEBOUNCE_TIME);
 }
 
+// The live doc already contains every update appended so far, so its full state can replace
+// the base snapshot through the last acknowledged seq.
+function compactEntry(documentId, credential, ydoc, log) {
+  if (log.compacting) return log.compacting;
+  if (log.count === 0) return Promise.resolve(false);
+
+  const throughSeq = log.lastSeq;
+  const count = log.count;
+  const bytes = log.bytes;
+  const state = Y.encodeStateAsUpdate(ydoc);
+
+  log.compacting = saveDocumentSnapshot(documentId, credential, state, throughSeq)
+    .then((compacted) => {
+      if (compacted) {
+        log.count = Math.max(0, log.count - count);
+        log.bytes = Math.max(0, log.bytes - bytes);
+      }
+      return compacted;
+    })
+    .finally(() => {
+      log.compacting = null;
+    });
+  return log.compacting;
+}
+
+// Asked for by document-service, which passes the owner so the compaction does not depend on a
+// user session here: after a restart, on another node or once the token expired there is none.
+export async function compactDocument(documents, documentTokens, documentId, ownerId) {
+  const token = documentTokens.get(documentId);
+  const credential = ownerId ? ownerCredential(ownerId) : token && bearerCredential(token);
+  if (!credential) return false;
+
+  const entry = documents.get(documentId);
+  if (entry && entry.loaded) {
+    await entry.saveFunc.flush();
+    return compactEntry(documentId, credential, entry.ydoc, entry.log);
+  }
+
+  // Not held in memory: merge the stored base and log without materialising a Y.Doc.
+  const stored = await loadDocumentUpdates(credential, documentId);
+  if (!stored || stored.updates.length === 0) return false;
+
+  const parts = stored.updates.map((u) => u.update);
+  if (stored.base) parts.unshift(stored.base);
+  const throughSeq = stored.updates[stored.updates.length - 1].seq;
+  return saveDocumentSnapshot(documentId, credential, Y.mergeUpdates(parts), throughSeq);
+}
+
 export function getOrCreateDocEntry(documents, docName, documentTokens) {
   let entry = documents.get(docName);
   if (!entry) {
@@ -34,7 +114,8 @@ export function getOrCreateDocEntry(documents, docName, documentTokens) {
     const awareness = new awarenessProtocol.Awareness(ydoc);
     const conns = new Set();
     const wsClients = new Map();
-    const saveFunc = createSaveFunction(docName, documentTokens);
+    const log = createUpdateLog();
+    const saveFunc = createSaveFunction(docName, documentTokens, ydoc, log);
 
     ydoc.on('update', (update, origin) => {
       const enc = encoding.createEncoder();
@@ -42,7 +123,10 @@ export function getOrCreateDocEntry(documents, docName, documentTokens) {
       encoding.writeVarUint(enc, MSG_SYNC);
       syncProtocol.writeUpdate(enc, update);
       broadcast(conns, origin, encoding.toUint8Array(enc));
-      saveFunc(ydoc);
+
+      if (origin === LOAD_ORIGIN) return;
+      log.pending.push(update);
+      saveFunc();
     });
 
     awareness.on('update', ({ added, updated, removed }, origin) => {
@@ -61,7 +145,7 @@ export function getOrCreateDocEntry(documents, docName, documentTokens) {
       broadcast(conns, origin, encoding.toUint8Array(enc));
     });
 
-    entry = { ydoc, awareness, conns, wsClients, saveFunc, loaded: false };
+    entry = { ydoc, awareness, conns, wsClients, saveFunc, log, loaded: false };
     documents.set(docName, entry);
   }
   return entry;
@@ -76,12 +160,24 @@ export async function ensureLoaded(documents, documentTokens, docName) {
   const entry = documents.get(docName);
   if (!entry || entry.loaded) return;
 
-  const existing = await loadDocumentContent(token, docName);
+  const stored = await loadDocumentUpdates(bearerCredential(token), docName);
 
-  if (existing && existing.byteLength > 0) {
-    Y.applyUpdate(entry.ydoc, existing);
+  if (stored) {
+    if (stored.base && stored.base.byteLength > 0) {
+      Y.applyUpdate(entry.ydoc, stored.base, LOAD_ORIGIN);
+    }
+    for (const { update } of stored.updates) {
+      Y.applyUpdate(entry.ydoc, update, LOAD_ORIGIN);
+    }
+    entry.log.lastSeq = Math.max(entry.log.lastSeq, stored.headSeq || 0);
+    entry.log.count += stored.updates.length;
+    entry.log.bytes += stored.updates.reduce((sum, u) => sum + u.update.byteLength, 0);
   }
   entry.loaded = true;
+
+  if (entry.log.count > 0) {
+    compactEntry(docName, bearerCredential(token), entry.ydoc, entry.log).catch(() => {});
+  }
 }
 
 export function handleDocumentMessage(data, ws) {
@@ -109,16 +205,17 @@ export function handleDocumentMessage(data, ws) {
   } catch (e) {}
 }
 
-export function handleDocumentClose(ws, documents, documentId) {
+export function handleDocumentClose(ws, documents, documentTokens, documentId) {
   const entry = documents.get(documentId);
 
   if (entry && entry.conns.size === 1) {
-    const saveFunc = entry.saveFunc;
+    const { saveFunc, ydoc, log } = entry;
+    const token = documentTokens.get(documentId);
 
     if (saveFunc && typeof saveFunc.flush === 'function') {
-      try {
-        saveFunc.flush();
-      } catch {}
+      Promise.resolve(saveFunc.flush())
+        .then(() => token && entry.loaded && compactEntry(documentId, bearerCredential(token), ydoc, log))
+        .catch(() => {});
     }
   }
 
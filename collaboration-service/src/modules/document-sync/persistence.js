@@ -1,6 +1,8 @@
 import axios from 'axios';
+import { signIdentity } from '../../utils/identity.js';
 
 const SPRING_BOOT_URL = process.env.SPRING_BOOT_URL;
+const DOCUMENT_SERVICE_URL = process.env.DOCUMENT_SERVICE_URL || 'http://document-service:8082';
 
 export async function loadDocumentContent(token, documentId) {
   try {
@@ -35,3 +37,73 @@ export async function saveDocumentContent(documentId, token, state) {
     );
   } catch (error) {}
 }
+
+function authHeaders(token, extra = {}) {
+  return { Authorization: `Bearer ${token}`, ...extra };
+}
+
+// How a log read or compaction authenticates: a connected user's token through the gateway, or,
+// when document-service asks for a compaction and no usable session is at hand, the owner's
+// identity signed by this service and sent to document-service directly.
+export function bearerCredential(token) {
+  return { baseUrl: SPRING_BOOT_URL, headers: () => authHeaders(token) };
+}
+
+export function ownerCredential(ownerId) {
+  return { baseUrl: DOCUMENT_SERVICE_URL, headers: (method, path) => signIdentity(ownerId, method, path) };
+}
+
+function fromBase64(value) {
+  return value ? new Uint8Array(Buffer.from(value, 'base64')) : null;
+}
+
+// Returns { base, updates: [{ seq, update }], headSeq } or null when the log cannot be read.
+export async function loadDocumentUpdates(credential, documentId, sinceSeq) {
+  const path = `/api/documents/${documentId}/updates`;
+  try {
+    const response = await axios.get(`${credential.baseUrl}${path}`, {
+      headers: credential.headers('GET', path),
+      params: sinceSeq != null ? { since: sinceSeq } : {},
+    });
+    const { base, updates = [], headSeq } = response.data || {};
+    return {
+      base: fromBase64(base),
+      updates: updates.map((u) => ({ seq: u.seq, update: fromBase64(u.update) })),
+      headSeq,
+    };
+  } catch (error) {
+    return null;
+  }
+}
+
+export async function appendDocumentUpdate(documentId, token, update) {
+  const response = await axios.post(
+    `${SPRING_BOOT_URL}/api/documents/${documentId}/updates`,
+    Buffer.from(update),
+    {
+      headers: authHeaders(token, { 'Content-Type': 'application/octet-stream' }),
+      maxBodyLength: Infinity,
+      maxContentLength: Infinity,
+    }
+  );
+  return response.data.seq;
+}
+
+export async function saveDocumentSnapshot(documentId, credential, state, throughSeq) {
+  const path = `/api/documents/${documentId}/updates/compact`;
+  try {
+    const response = await axios.post(
+      `${credential.baseUrl}${path}`,
+      Buffer.from(state),
+      {
+        headers: { ...credential.headers('POST', path), 'Content-Type': 'application/octet-stream' },
+        params: { throughSeq },
+        maxBodyLength: Infinity,
+        maxContentLength: Infinity,
+      }
+    );
+    return Boolean(response.data && response.data.compacted);
+  } catch (error) {
+    return false;
+  }
+}
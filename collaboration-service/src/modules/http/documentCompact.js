@@ -0,0 +1,14 @@
+import { compactDocument } from '../document-sync/index.js';
+
+export function registerDocumentCompactEndpoint(app, documents, documentTokens) {
+  app.post('/compact-document/:documentId', async (req, res) => {
+    const { documentId } = req.params;
+    const { ownerId } = req.query;
+    try {
+      const compacted = await compactDocument(documents, documentTokens, documentId, ownerId);
+      res.status(200).json({ compacted });
+    } catch {
+      res.status(200).json({ compacted: false });
+    }
+  });
+}
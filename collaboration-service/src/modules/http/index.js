@@ -1,11 +1,13 @@
+import { registerDocumentCompactEndpoint } from './documentCompact.js';
 import { registerDocumentReloadEndpoint } from './documentReload.js';
 import { registerNotificationEndpoint } from './notifications.js';
 
-export function registerHttpEndpoints(app, { documents, notificationBroadcaster }) {
+export function registerHttpEndpoints(app, { documents, documentTokens, notificationBroadcaster }) {
   app.get('/health', (_req, res) => {
     res.json({ status: 'ok', activeDocuments: documents.size });
   });
 
   registerDocumentReloadEndpoint(app, documents);
+  registerDocumentCompactEndpoint(app, documents, documentTokens);
   registerNotificationEndpoint(app, notificationBroadcaster);
 }
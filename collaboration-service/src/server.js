@@ -21,7 +21,7 @@ app.use(express.json());
 const documentTokens = new Map();
 const documents = new Map();
 
-registerHttpEndpoints(app, {documents, notificationBroadcaster});
+registerHttpEndpoints(app, {documents, documentTokens, notificationBroadcaster});
 
 const server = http.createServer(app);
 const wss = new WebSocketServer({server});
@@ -73,7 +73,7 @@ wss.on('connection', async (ws, req) => {
     });
 
     ws.on('close', () => {
-        handleDocumentClose(ws, documents, documentId);
+        handleDocumentClose(ws, documents, documentTokens, documentId);
     });
 
     handleQueryAwarenessMessage(ws, entry);
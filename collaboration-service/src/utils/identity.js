@@ -0,0 +1,18 @@
+import crypto from 'crypto';
+
+const IDENTITY_SECRET = process.env.IDENTITY_SECRET || process.env.JWT_SECRET;
+const SERVICE_NAME = 'collaboration-service';
+
+// Identity headers in the format the gateway signs and the Spring services verify: an HMAC over
+// the user, the issue time and the request line it is good for.
+export function signIdentity(userId, method, path, { secret = IDENTITY_SECRET, now = Date.now() } = {}) {
+  if (!secret) throw new Error('IDENTITY_SECRET is not set');
+  const issuedAt = String(Math.floor(now / 1000));
+  const payload = [userId, SERVICE_NAME, issuedAt, method, path].join('\n');
+  return {
+    'X-User-Id': userId,
+    'X-Username': SERVICE_NAME,
+    'X-User-Issued-At': issuedAt,
+    'X-User-Signature': crypto.createHmac('sha256', secret).update(payload, 'utf8').digest('base64url'),
+  };
+}
@@ -0,0 +1,100 @@
+import { test, before, after } from 'node:test';
+import assert from 'node:assert/strict';
+import crypto from 'crypto';
+import http from 'http';
+import * as Y from 'yjs';
+
+const SECRET = 'test-identity-secret';
+const DOCUMENT_ID = '6f1c2a9e-0000-4000-8000-000000000001';
+const OWNER_ID = '6f1c2a9e-0000-4000-8000-0000000000aa';
+
+let server;
+let requests;
+let compactDocument;
+let signIdentity;
+
+function encode(update) {
+  return Buffer.from(update).toString('base64');
+}
+
+// The base and two logged updates, as document-service would hand them out.
+function storedLog() {
+  const doc = new Y.Doc();
+  const text = doc.getText('t');
+  text.insert(0, 'base');
+  const base = Y.encodeStateAsUpdate(doc);
+  const updates = [];
+  doc.on('update', (update) => updates.push(update));
+  text.insert(4, ' one');
+  text.insert(8, ' two');
+  return { base, updates };
+}
+
+before(async () => {
+  const { base, updates } = storedLog();
+  server = http.createServer((req, res) => {
+    const chunks = [];
+    req.on('data', (c) => chunks.push(c));
+    req.on('end', () => {
+      requests.push({ method: req.method, url: req.url, headers: req.headers, body: Buffer.concat(chunks) });
+      res.setHeader('Content-Type', 'application/json');
+      if (req.method === 'GET') {
+        res.end(JSON.stringify({
+          base: encode(base),
+          updates: updates.map((u, i) => ({ seq: i + 1, update: encode(u) })),
+          headSeq: updates.length,
+        }));
+      } else {
+        res.end(JSON.stringify({ compacted: true }));
+      }
+    });
+  });
+  await new Promise((resolve) => server.listen(0, '127.0.0.1', resolve));
+  process.env.DOCUMENT_SERVICE_URL = `http://127.0.0.1:${server.address().port}`;
+  process.env.IDENTITY_SECRET = SECRET;
+  ({ compactDocument } = await import('../src/modules/document-sync/index.js'));
+  ({ signIdentity } = await import('../src/utils/identity.js'));
+});
+
+after(() => server.close());
+
+function assertSignedFor(request, method, path) {
+  const { 'x-user-id': userId, 'x-username': username, 'x-user-issued-at': issuedAt } = request.headers;
+  const payload = [userId, username, issuedAt, method, path].join('\n');
+  const expected = crypto.createHmac('sha256', SECRET).update(payload).digest('base64url');
+  assert.equal(userId, OWNER_ID);
+  assert.equal(request.headers['x-user-signature'], expected);
+  assert.ok(Math.abs(Date.now() / 1000 - Number(issuedAt)) < 60);
+  assert.equal(request.headers.authorization, undefined);
+}
+
+test('signs the same payload the Spring services verify', () => {
+  const headers = signIdentity('11111111-2222-3333-4444-555555555555', 'PUT', '/api/documents/abc/content',
+    { secret: SECRET, now: 1_700_000_000_500 });
+  assert.equal(headers['X-User-Issued-At'], '1700000000');
+  assert.equal(headers['X-User-Signature'], 'pQ4GbLlDn2LHMt0jY84xK90eFdmD5HYNJpsi9O_KsRY');
+});
+
+test('compacts a document with no live doc and no session token as its owner', async () => {
+  requests = [];
+  const compacted = await compactDocument(new Map(), new Map(), DOCUMENT_ID, OWNER_ID);
+
+  assert.equal(compacted, true);
+  assert.equal(requests.length, 2);
+  const [read, compact] = requests;
+  assert.equal(read.method, 'GET');
+  assertSignedFor(read, 'GET', `/api/documents/${DOCUMENT_ID}/updates`);
+  assert.equal(compact.method, 'POST');
+  assert.equal(compact.url, `/api/documents/${DOCUMENT_ID}/updates/compact?throughSeq=2`);
+  assertSignedFor(compact, 'POST', `/api/documents/${DOCUMENT_ID}/updates/compact`);
+
+  const folded = new Y.Doc();
+  Y.applyUpdate(folded, new Uint8Array(compact.body));
+  assert.equal(folded.getText('t').toString(), 'base one two');
+});
+
+test('gives up without an owner or a session token', async () => {
+  requests = [];
+  assert.equal(await compactDocument(new Map(), new Map(), DOCUMENT_ID), false);
+  assert.equal(requests.length, 0);
+});
@@ -0,0 +1,219 @@
+package com.echoproject.echo.common.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+// The id is persisted as the first byte of every stored blob, so ids must never be reused.
+public enum ContentCodec {
+  NONE(0) {
+    @Override
+    byte[] compress(byte[] raw) {
+      return raw;
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      byte[] raw = new byte[rawLength];
+      System.arraycopy(stored, offset, raw, 0, rawLength);
+      return raw;
+    }
+
+    @Override
+    OutputStream compressStream(OutputStream out) {
+      return out;
+    }
+
+    @Override
+    InputStream decompressStream(byte[] stored, int offset, int rawLength) {
+      return new ByteArrayInputStream(stored, offset, rawLength);
+    }
+  },
+  DEFLATE(1) {
+    @Override
+    byte[] compress(byte[] raw) {
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      try {
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+          out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(stored, offset, stored.length - offset);
+        byte[] raw = new byte[rawLength];
+        int read = 0;
+        while (read < rawLength && !inflater.finished()) {
+          int n = inflater.inflate(raw, read, rawLength - read);
+          if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+          read += n;
+        }
+        if (read != rawLength) throw new IllegalStateException("Truncated deflate content");
+        return raw;
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("Corrupt deflate content", e);
+      } finally {
+        inflater.end();
+      }
+    }
+
+    @Override
+    OutputStream compressStream(OutputStream out) {
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      return new DeflaterOutputStream(out, deflater, 8192) {
+        @Override
+        public void close() throws IOException {
+          super.close();
+          deflater.end();
+        }
+      };
+    }
+
+    @Override
+    InputStream decompressStream(byte[] stored, int offset, int rawLength) {
+      Inflater inflater = new Inflater(true);
+      return new InflaterInputStream(new ByteArrayInputStream(stored, offset, stored.length - offset), inflater) {
+        @Override
+        public void close() throws IOException {
+          super.close();
+          inflater.end();
+        }
+      };
+    }
+  },
+  ZSTD(2) {
+    @Override
+    byte[] compress(byte[] raw) {
+      return Zstd.compress(raw, 3);
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      byte[] raw = new byte[rawLength];
+      long n = Zstd.decompressByteArray(raw, 0, rawLength, stored, offset, stored.length - offset);
+      if (Zstd.isError(n) || n != rawLength) throw new IllegalStateException("Corrupt zstd content");
+      return raw;
+    }
+
+    @Override
+    OutputStream compressStream(OutputStream out) throws IOException {
+      return new ZstdOutputStream(out, 3);
+    }
+
+    @Override
+    InputStream decompressStream(byte[] stored, int offset, int rawLength) throws IOException {
+      return new ZstdInputStream(new ByteArrayInputStream(stored, offset, stored.length - offset));
+    }
+  },
+  LZ4(3) {
+    @Override
+    byte[] compress(byte[] raw) {
+      return LZ4Factory.fastestInstance().fastCompressor().compress(raw);
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      return LZ4Factory.fastestInstance().fastDecompressor().decompress(stored, offset, rawLength);
+    }
+
+    // The block format needs the whole input up front, so streamed uploads use the frame format.
+    @Override
+    public ContentCodec streamCodec() {
+      return LZ4_FRAME;
+    }
+  },
+  LZ4_FRAME(4) {
+    @Override
+    byte[] compress(byte[] raw) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+      try (OutputStream lz4 = compressStream(out)) {
+        lz4.write(raw);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return out.toByteArray();
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      try (InputStream in = decompressStream(stored, offset, rawLength)) {
+        byte[] raw = in.readNBytes(rawLength);
+        if (raw.length != rawLength) throw new IllegalStateException("Truncated lz4 content");
+        return raw;
+      } catch (IOException e) {
+        throw new IllegalStateException("Corrupt lz4 content", e);
+      }
+    }
+
+    @Override
+    OutputStream compressStream(OutputStream out) throws IOException {
+      return new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+    }
+
+    @Override
+    InputStream decompressStream(byte[] stored, int offset, int rawLength) throws IOException {
+      return new LZ4FrameInputStream(new ByteArrayInputStream(stored, offset, stored.length - offset));
+    }
+  };
+
+  private final byte id;
+
+  ContentCodec(int id) {
+    this.id = (byte) id;
+  }
+
+  public byte id() {
+    return id;
+  }
+
+  abstract byte[] compress(byte[] raw);
+
+  abstract byte[] decompress(byte[] stored, int offset, int rawLength);
+
+  // The codec a streamed upload is stored with when this one is configured.
+  public ContentCodec streamCodec() {
+    return this;
+  }
+
+  // Only called on a streamCodec(); the LZ4 block format is never written from a stream.
+  OutputStream compressStream(OutputStream out) throws IOException {
+    throw new IllegalStateException(name() + " streams are written as " + streamCodec());
+  }
+
+  // Codecs without a streaming decoder fall back to a full decode.
+  InputStream decompressStream(byte[] stored, int offset, int rawLength) throws IOException {
+    return new ByteArrayInputStream(decompress(stored, offset, rawLength));
+  }
+
+  public static ContentCodec fromId(byte id) {
+    for (ContentCodec codec : values()) {
+      if (codec.id == id) return codec;
+    }
+    throw new IllegalStateException("Unknown content codec " + id);
+  }
+}
@@ -0,0 +1,240 @@
+package com.echoproject.echo.common.compression;
+
+import com.echoproject.echo.common.exception.ContentTooLargeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+// Stored layout: one codec byte, then for compressed codecs a 4-byte raw length and the
+// compressed body, or for NONE the raw bytes. Rows are decoded by their own header, so changing
+// the configured codec never strands existing data.
+@Component
+public class ContentCompressor {
+
+  private static final int LENGTH_BYTES = Integer.BYTES;
+  private static final int COPY_BUFFER = 64 * 1024;
+
+  private final ContentCodec codec;
+  private final int minSize;
+  private final long maxUploadSize;
+  private final int spoolThreshold;
+  private final Map<ContentCodec, CodecMeters> meters = new EnumMap<>(ContentCodec.class);
+
+  public ContentCompressor(
+      MeterRegistry meterRegistry,
+      @Value("${content.compression.codec:zstd}") String codec,
+      @Value("${content.compression.min-size:256}") int minSize,
+      @Value("${content.upload.max-size:50MB}") DataSize maxUploadSize,
+      @Value("${content.upload.spool-threshold:256KB}") DataSize spoolThreshold) {
+    this.codec = ContentCodec.valueOf(codec.trim().toUpperCase(Locale.ROOT));
+    this.minSize = minSize;
+    this.maxUploadSize = maxUploadSize.toBytes();
+    this.spoolThreshold = (int) spoolThreshold.toBytes();
+    for (ContentCodec c : ContentCodec.values()) {
+      meters.put(c, new CodecMeters(meterRegistry, c));
+    }
+  }
+
+  public ContentCodec getCodec() {
+    return codec;
+  }
+
+  public byte[] encode(byte[] raw) {
+    if (raw == null || raw.length == 0) return raw;
+    if (codec == ContentCodec.NONE || raw.length < minSize) return withNoneHeader(raw);
+
+    CodecMeters m = meters.get(codec);
+    long start = System.nanoTime();
+    byte[] body = codec.compress(raw);
+    m.encode.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    // Incompressible input is kept as-is rather than paying for a decode that saves nothing.
+    if (body.length + LENGTH_BYTES >= raw.length) return withNoneHeader(raw);
+
+    byte[] stored = ByteBuffer.allocate(1 + LENGTH_BYTES + body.length)
+        .put(codec.id())
+        .putInt(raw.length)
+        .put(body)
+        .array();
+    m.rawBytes.increment(raw.length);
+    m.storedBytes.increment(stored.length);
+    m.ratio.record((double) raw.length / stored.length);
+    return stored;
+  }
+
+  // Lets callers refuse an upload from its declared length before reading any of it.
+  public void checkUploadSize(long declaredLength) {
+    if (declaredLength > maxUploadSize) throw new ContentTooLargeException(maxUploadSize);
+  }
+
+  // Streams an upload through the codec into a spool, hashing the raw bytes on the way. Only a
+  // copy buffer and at most the spool threshold of encoded bytes are held on the heap.
+  public EncodedContent encode(InputStream raw) throws IOException {
+    MessageDigest digest = ContentHash.newDigest();
+    ContentSpool spool = new ContentSpool(spoolThreshold);
+    try {
+      int peek = Math.max(1, minSize);
+      byte[] head = raw.readNBytes(peek);
+      if (head.length == 0) return new EncodedContent(spool, 0, null);
+
+      boolean compress = head.length == peek && codec != ContentCodec.NONE;
+      ContentCodec storedCodec = compress ? codec.streamCodec() : ContentCodec.NONE;
+      spool.write(storedCodec.id());
+      if (compress) spool.write(new byte[LENGTH_BYTES]);
+
+      if (!compress) return finish(spool, storedCodec, copy(head, raw, spool, digest), digest, 0);
+
+      long rawLength;
+      long start = System.nanoTime();
+      try (OutputStream out = storedCodec.compressStream(new NonClosingOutputStream(spool))) {
+        rawLength = copy(head, raw, out, digest);
+      }
+      meters.get(storedCodec).encode.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      spool.patch(1, ByteBuffer.allocate(LENGTH_BYTES).putInt((int) rawLength).array());
+      return finish(spool, storedCodec, rawLength, digest, spool.length());
+    } catch (IOException | RuntimeException e) {
+      spool.close();
+      throw e;
+    }
+  }
+
+  public byte[] decode(byte[] stored) {
+    if (stored == null || stored.length == 0) return stored;
+    ContentCodec storedCodec = codecOf(stored);
+    if (storedCodec == ContentCodec.NONE) return ContentCodec.NONE.decompress(stored, 1, stored.length - 1);
+
+    int rawLength = ByteBuffer.wrap(stored, 1, LENGTH_BYTES).getInt();
+    CodecMeters m = meters.get(storedCodec);
+    long start = System.nanoTime();
+    byte[] raw = storedCodec.decompress(stored, 1 + LENGTH_BYTES, rawLength);
+    m.decode.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return raw;
+  }
+
+  // Exposes stored bytes as a re-readable resource that decodes on each read, which is what
+  // Spring's Range support needs, without materialising the raw content up front.
+  public Resource asResource(byte[] stored) {
+    if (stored == null || stored.length == 0) return new ByteArrayResource(new byte[0]);
+    return new DecodingResource(stored);
+  }
+
+  public ContentCodec codecOf(byte[] stored) {
+    return ContentCodec.fromId(stored[0]);
+  }
+
+  private long copy(byte[] head, InputStream raw, OutputStream out, MessageDigest digest) throws IOException {
+    out.write(head);
+    digest.update(head);
+    long total = head.length;
+    byte[] buffer = new byte[COPY_BUFFER];
+    int n;
+    while ((n = raw.read(buffer)) > 0) {
+      total += n;
+      if (total > maxUploadSize) throw new ContentTooLargeException(maxUploadSize);
+      out.write(buffer, 0, n);
+      digest.update(buffer, 0, n);
+    }
+    return total;
+  }
+
+  private EncodedContent finish(
+      ContentSpool spool, ContentCodec storedCodec, long rawLength, MessageDigest digest, long storedLength) {
+    CodecMeters m = meters.get(storedCodec);
+    m.rawBytes.increment(rawLength);
+    m.storedBytes.increment(spool.length());
+    if (storedLength > 0) m.ratio.record((double) rawLength / storedLength);
+    return new EncodedContent(spool, rawLength, ContentHash.format(digest));
+  }
+
+  private byte[] withNoneHeader(byte[] raw) {
+    byte[] stored = new byte[raw.length + 1];
+    stored[0] = ContentCodec.NONE.id();
+    System.arraycopy(raw, 0, stored, 1, raw.length);
+    meters.get(ContentCodec.NONE).rawBytes.increment(raw.length);
+    meters.get(ContentCodec.NONE).storedBytes.increment(stored.length);
+    return stored;
+  }
+
+  // The spool must outlive the codec stream, which closes its target on finish.
+  private static class NonClosingOutputStream extends FilterOutputStream {
+    NonClosingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+
+  private class DecodingResource extends AbstractResource {
+    private final byte[] stored;
+    private final ContentCodec storedCodec;
+    private final int rawLength;
+
+    DecodingResource(byte[] stored) {
+      this.stored = stored;
+      this.storedCodec = codecOf(stored);
+      this.rawLength = storedCodec == ContentCodec.NONE
+          ? stored.length - 1
+          : ByteBuffer.wrap(stored, 1, LENGTH_BYTES).getInt();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      int offset = storedCodec == ContentCodec.NONE ? 1 : 1 + LENGTH_BYTES;
+      return storedCodec.decompressStream(stored, offset, rawLength);
+    }
+
+    @Override
+    public long contentLength() {
+      return rawLength;
+    }
+
+    @Override
+    public String getDescription() {
+      return "Stored content [" + storedCodec + ", " + rawLength + " bytes]";
+    }
+  }
+
+  private static class CodecMeters {
+    final Timer encode;
+    final Timer decode;
+    final Counter rawBytes;
+    final Counter storedBytes;
+    final DistributionSummary ratio;
+
+    CodecMeters(MeterRegistry registry, ContentCodec codec) {
+      String name = codec.name().toLowerCase(Locale.ROOT);
+      encode = Timer.builder("content.codec").tag("codec", name).tag("op", "encode").register(registry);
+      decode = Timer.builder("content.codec").tag("codec", name).tag("op", "decode").register(registry);
+      rawBytes = Counter.builder("content.compression.bytes").tag("codec", name).tag("kind", "raw")
+          .baseUnit("bytes").register(registry);
+      storedBytes = Counter.builder("content.compression.bytes").tag("codec", name).tag("kind", "stored")
+          .baseUnit("bytes").register(registry);
+      ratio = DistributionSummary.builder("content.compression.ratio").tag("codec", name).register(registry);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.echoproject.echo.common.compression;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Hash of the raw (decoded) content, so it is stable across codec changes and recompression.
+public final class ContentHash {
+
+  private ContentHash() {}
+
+  public static String of(byte[] raw) {
+    if (raw == null || raw.length == 0) return null;
+    MessageDigest digest = newDigest();
+    digest.update(raw);
+    return format(digest);
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String format(MessageDigest digest) {
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
@@ -0,0 +1,88 @@
+package com.echoproject.echo.common.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Holds encoded content in memory up to a threshold and in a temp file beyond it, so a large
+// upload never has to sit on the heap while it waits to be bound into the insert.
+final class ContentSpool extends OutputStream {
+
+  private final int spillThreshold;
+  private byte[] memory = new byte[1024];
+  private int memoryLength;
+  private Path file;
+  private FileChannel channel;
+  private long length;
+
+  ContentSpool(int spillThreshold) {
+    this.spillThreshold = spillThreshold;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (channel == null && memoryLength + len > spillThreshold) spill();
+    if (channel != null) {
+      ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+      while (buffer.hasRemaining()) channel.write(buffer);
+    } else {
+      if (memoryLength + len > memory.length) {
+        memory = Arrays.copyOf(memory, Math.max(memoryLength + len, memory.length * 2));
+      }
+      System.arraycopy(b, off, memory, memoryLength, len);
+      memoryLength += len;
+    }
+    length += len;
+  }
+
+  // Overwrites already-written bytes, used to fill in the header once the raw length is known.
+  void patch(long position, byte[] bytes) throws IOException {
+    if (channel != null) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      long at = position;
+      while (buffer.hasRemaining()) at += channel.write(buffer, at);
+    } else {
+      System.arraycopy(bytes, 0, memory, (int) position, bytes.length);
+    }
+  }
+
+  long length() {
+    return length;
+  }
+
+  InputStream openInputStream() throws IOException {
+    if (channel == null) return new ByteArrayInputStream(memory, 0, memoryLength);
+    channel.force(false);
+    return Files.newInputStream(file);
+  }
+
+  @Override
+  public void close() throws IOException {
+    memory = null;
+    if (channel != null) {
+      channel.close();
+      Files.deleteIfExists(file);
+      channel = null;
+    }
+  }
+
+  private void spill() throws IOException {
+    file = Files.createTempFile("echo-content-", ".spool");
+    channel = FileChannel.open(file, StandardOpenOption.WRITE);
+    channel.write(ByteBuffer.wrap(memory, 0, memoryLength));
+    memory = null;
+    memoryLength = 0;
+  }
+}
@@ -0,0 +1,40 @@
+package com.echoproject.echo.common.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Result of streaming an upload through the compressor. Must be closed to release any spool file.
+public final class EncodedContent implements AutoCloseable {
+
+  private final ContentSpool spool;
+  private final long rawLength;
+  private final String contentHash;
+
+  EncodedContent(ContentSpool spool, long rawLength, String contentHash) {
+    this.spool = spool;
+    this.rawLength = rawLength;
+    this.contentHash = contentHash;
+  }
+
+  public long rawLength() {
+    return rawLength;
+  }
+
+  public long storedLength() {
+    return spool.length();
+  }
+
+  // Null for empty content.
+  public String contentHash() {
+    return contentHash;
+  }
+
+  public InputStream openStored() throws IOException {
+    return spool.openInputStream();
+  }
+
+  @Override
+  public void close() throws IOException {
+    spool.close();
+  }
+}
@@ -0,0 +1,122 @@
+package com.echoproject.echo.common.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+// Fork/join over a bounded fan-out pool with shutdown-on-failure semantics: the first failing
+// subtask cancels its siblings and its exception is rethrown from join().
+@Component
+public class ConcurrentCalls implements DisposableBean {
+
+  private final Executor executor;
+
+  @Autowired
+  public ConcurrentCalls(
+      @Value("${fanout.pool-size:32}") int poolSize,
+      @Value("${fanout.queue-capacity:256}") int queueCapacity) {
+    ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+    pool.setCorePoolSize(poolSize);
+    pool.setMaxPoolSize(poolSize);
+    pool.setQueueCapacity(queueCapacity);
+    pool.setThreadNamePrefix("fanout-");
+    pool.setTaskDecorator(new RequestContextTaskDecorator());
+    // Under saturation subtasks run on the caller, degrading to sequential instead of failing
+    pool.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    pool.initialize();
+    this.executor = pool;
+  }
+
+  public ConcurrentCalls(Executor executor) {
+    this.executor = executor;
+  }
+
+  public Scope open() {
+    return new Scope(executor);
+  }
+
+  @Override
+  public void destroy() {
+    if (executor instanceof ThreadPoolTaskExecutor pool) pool.shutdown();
+  }
+
+  public static final class Scope implements AutoCloseable {
+    private final ExecutorCompletionService<Object> completion;
+    private final List<Future<Object>> futures = new ArrayList<>();
+    private boolean joined;
+
+    private Scope(Executor executor) {
+      this.completion = new ExecutorCompletionService<>(executor);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Subtask<T> fork(Callable<T> task) {
+      Future<Object> future = completion.submit((Callable<Object>) task);
+      futures.add(future);
+      return new Subtask<>((Future<T>) (Future<?>) future);
+    }
+
+    public void join() {
+      try {
+        for (int i = 0; i < futures.size(); i++) {
+          Future<Object> done = completion.take();
+          try {
+            done.get();
+          } catch (ExecutionException e) {
+            cancelAll();
+            throw rethrow(e.getCause());
+          }
+        }
+        joined = true;
+      } catch (InterruptedException e) {
+        cancelAll();
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while waiting for downstream calls");
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!joined) cancelAll();
+    }
+
+    private void cancelAll() {
+      futures.forEach(f -> f.cancel(true));
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+      if (cause instanceof RuntimeException re) return re;
+      if (cause instanceof Error err) throw err;
+      return new IllegalStateException(cause);
+    }
+  }
+
+  public static final class Subtask<T> {
+    private final Future<T> future;
+
+    private Subtask(Future<T> future) {
+      this.future = future;
+    }
+
+    // Only valid after a successful Scope.join().
+    public T get() {
+      if (!future.isDone()) throw new IllegalStateException("Subtask not joined");
+      try {
+        return future.get();
+      } catch (InterruptedException | ExecutionException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
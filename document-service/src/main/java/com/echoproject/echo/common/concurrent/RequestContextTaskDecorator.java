@@ -0,0 +1,30 @@
+package com.echoproject.echo.common.concurrent;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+// Subtasks call downstream services with the caller's Authorization header, so they need the
+// originating request and security context on the worker thread.
+class RequestContextTaskDecorator implements TaskDecorator {
+
+  @Override
+  public Runnable decorate(Runnable runnable) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    SecurityContext securityContext = SecurityContextHolder.getContext();
+    return () -> {
+      RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+      SecurityContext previousContext = SecurityContextHolder.getContext();
+      try {
+        RequestContextHolder.setRequestAttributes(attributes);
+        SecurityContextHolder.setContext(securityContext);
+        runnable.run();
+      } finally {
+        RequestContextHolder.setRequestAttributes(previousAttributes);
+        SecurityContextHolder.setContext(previousContext);
+      }
+    };
+  }
+}
@@ -0,0 +1,5 @@
+package com.echoproject.echo.common.exception;
+
+public class ContentTooLargeException extends RuntimeException {
+  public ContentTooLargeException(long maxBytes) { super("Content exceeds the maximum size of " + maxBytes + " bytes"); }
+}
@@ -0,0 +1,15 @@
+package com.echoproject.echo.common.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+
+// The content exists but cannot be served as a whole right now; the caller should retry.
+@Getter
+public class ContentUnavailableException extends RuntimeException {
+  private final Duration retryAfter;
+
+  public ContentUnavailableException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+}
@@ -1,5 +1,6 @@
 package com.echoproject.echo.common.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -16,6 +17,16 @@ public class GlobalExceptionHandler {
   public ResponseEntity<String> handleNotFound(NotFoundException ex) {
     return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
   }
+  @ExceptionHandler(ContentTooLargeException.class)
+  public ResponseEntity<String> handleContentTooLarge(ContentTooLargeException ex) {
+    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(ex.getMessage());
+  }
+  @ExceptionHandler(ContentUnavailableException.class)
+  public ResponseEntity<String> handleContentUnavailable(ContentUnavailableException ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+        .body(ex.getMessage());
+  }
   @ExceptionHandler(MethodArgumentNotValidException.class)
   public ResponseEntity<String> handleValidation(MethodArgumentNotValidException ex) {
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Validation error");
@@ -3,20 +3,31 @@ package com.echoproject.echo.document.controller;
 import com.echoproject.echo.document.dto.AddCollaboratorRequest;
 import com.echoproject.echo.document.dto.CreateDocumentRequest;
 import com.echoproject.echo.document.dto.DocumentContentResponse;
+import com.echoproject.echo.document.dto.DocumentPageResponse;
 import com.echoproject.echo.document.dto.DocumentResponse;
+import com.echoproject.echo.document.dto.DocumentUpdatesResponse;
 import com.echoproject.echo.document.dto.UpdateDocumentRequest;
 import com.echoproject.echo.document.dto.ValidateDocumentAccessRequest;
 import com.echoproject.echo.document.dto.ValidateDocumentAccessResponse;
 import com.echoproject.echo.document.service.DocumentService;
+import com.echoproject.echo.document.service.DocumentUpdateLogService;
 import com.echoproject.echo.security.service.CustomUserDetails;
 import com.echoproject.echo.user.dto.UserSearchResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -24,6 +35,7 @@ import org.springframework.web.bind.annotation.*;
 public class DocumentController {
 
   private final DocumentService documentService;
+  private final DocumentUpdateLogService updateLogService;
 
   @PostMapping
   public ResponseEntity<DocumentResponse> createDocument(
@@ -33,9 +45,12 @@ public class DocumentController {
   }
 
   @GetMapping
-  public ResponseEntity<List<DocumentResponse>> getUserDocuments(
-      @AuthenticationPrincipal CustomUserDetails userDetails) {
-    return ResponseEntity.ok(documentService.getUserDocuments(userDetails.getId()));
+  public ResponseEntity<DocumentPageResponse> getUserDocuments(
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @RequestParam(required = false) String sort,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer limit) {
+    return ResponseEntity.ok(documentService.getUserDocuments(userDetails.getId(), sort, cursor, limit));
   }
 
   @GetMapping("/{id}")
@@ -86,10 +101,47 @@ public class DocumentController {
   }
 
   @GetMapping("/{id}/content")
-  public ResponseEntity<byte[]> getDocumentContent(
-      @AuthenticationPrincipal CustomUserDetails userDetails, @PathVariable UUID id) {
+  public ResponseEntity<Resource> getDocumentContent(
+      @AuthenticationPrincipal CustomUserDetails userDetails, @PathVariable UUID id, WebRequest webRequest) {
+    DocumentContentResponse header = documentService.getDocumentContentHeader(userDetails.getId(), id);
+    if (header.getContentHash() != null && webRequest.checkNotModified(header.getContentHash(), epochMillis(header))) {
+      return null;
+    }
+    // Range requests are served by Spring from the Resource body.
     DocumentContentResponse content = documentService.getDocumentContent(userDetails.getId(), id);
-    return ResponseEntity.ok().header("Content-Type", "application/octet-stream").body(content.getState());
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        .cacheControl(CacheControl.noCache().cachePrivate());
+    if (content.getContentHash() != null) response.eTag(content.getContentHash());
+    if (content.getUpdatedAt() != null) response.lastModified(epochMillis(content));
+    return response.body(content.getContent());
+  }
+
+  @PostMapping("/{id}/updates")
+  public ResponseEntity<Map<String, Long>> appendUpdate(
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @PathVariable UUID id,
+      @RequestBody byte[] update) {
+    return ResponseEntity.ok(Map.of("seq", updateLogService.appendUpdate(userDetails.getId(), id, update)));
+  }
+
+  @GetMapping("/{id}/updates")
+  public ResponseEntity<DocumentUpdatesResponse> getUpdates(
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @PathVariable UUID id,
+      @RequestParam(required = false) Long since) {
+    return ResponseEntity.ok(updateLogService.getUpdates(userDetails.getId(), id, since));
+  }
+
+  @PostMapping("/{id}/updates/compact")
+  public ResponseEntity<Map<String, Boolean>> compactUpdates(
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @PathVariable UUID id,
+      @RequestParam long throughSeq,
+      HttpServletRequest request) throws IOException {
+    boolean compacted = updateLogService.compact(
+        userDetails.getId(), id, request.getInputStream(), request.getContentLengthLong(), throughSeq);
+    return ResponseEntity.ok(Map.of("compacted", compacted));
   }
 
   @PostMapping("/validate-access")
@@ -104,9 +156,13 @@ public class DocumentController {
   public ResponseEntity<Void> saveDocumentContent(
       @AuthenticationPrincipal CustomUserDetails userDetails,
       @PathVariable UUID id,
-      @RequestBody byte[] state) {
-    documentService.saveDocumentContent(userDetails.getId(), id, state);
+      HttpServletRequest request) throws IOException {
+    documentService.saveDocumentContent(userDetails.getId(), id, request.getInputStream(), request.getContentLengthLong());
     return ResponseEntity.noContent().build();
   }
-}
 
+  private static long epochMillis(DocumentContentResponse content) {
+    if (content.getUpdatedAt() == null) return -1;
+    return content.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+}
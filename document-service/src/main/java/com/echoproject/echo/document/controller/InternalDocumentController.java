@@ -1,16 +1,23 @@
 package com.echoproject.echo.document.controller;
 
+import com.echoproject.echo.common.exception.BadRequestException;
 import com.echoproject.echo.common.exception.NotFoundException;
+import com.echoproject.echo.document.dto.DocumentActivityResponse;
 import com.echoproject.echo.document.models.Document;
 import com.echoproject.echo.document.models.DocumentCollaborator;
 import com.echoproject.echo.document.repository.DocumentCollaboratorRepository;
+import com.echoproject.echo.document.repository.DocumentContentRepository;
 import com.echoproject.echo.document.repository.DocumentRepository;
 import com.echoproject.echo.document.service.DocumentService;
 import com.echoproject.echo.user.client.UserServiceClient;
 import com.echoproject.echo.security.service.CustomUserDetails;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -22,6 +29,7 @@ public class InternalDocumentController {
 
   private final DocumentRepository documentRepository;
   private final DocumentCollaboratorRepository collaboratorRepository;
+  private final DocumentContentRepository contentRepository;
   private final DocumentService documentService;
   private final UserServiceClient userClient;
 
@@ -44,13 +52,33 @@ public class InternalDocumentController {
     return ResponseEntity.ok(Map.of("collaboratorIds", ids));
   }
 
+  // Content changes in commit order, for the version-service snapshot scheduler. Lists every
+  // document, so only the service account may call it.
+  @GetMapping("/activity")
+  public ResponseEntity<List<DocumentActivityResponse>> getActivity(
+      @AuthenticationPrincipal CustomUserDetails user,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterUpdatedAt,
+      @RequestParam(required = false) UUID afterDocumentId,
+      @RequestParam(defaultValue = "500") int limit
+  ) {
+    if (!user.isServiceAccount()) throw new BadRequestException("Access denied");
+    var activity = contentRepository.findActivityAfter(
+            afterUpdatedAt != null ? afterUpdatedAt : LocalDateTime.of(1970, 1, 1, 0, 0),
+            afterDocumentId != null ? afterDocumentId : new UUID(0L, 0L),
+            Math.min(Math.max(limit, 1), 1000)).stream()
+        .map(a -> new DocumentActivityResponse(a.getDocumentId(), a.getOwnerId(), a.getContentHash(),
+            a.getBaseSeq(), a.getHeadSeq(), a.getWrittenBytes(), a.getUpdatedAt()))
+        .toList();
+    return ResponseEntity.ok(activity);
+  }
+
   @PostMapping("/{id}/content")
   public ResponseEntity<Void> overwriteContent(
       @AuthenticationPrincipal CustomUserDetails user,
       @PathVariable UUID id,
-      @RequestBody byte[] state
-  ) {
-    documentService.saveDocumentContent(user.getId(), id, state);
+      HttpServletRequest request
+  ) throws IOException {
+    documentService.saveDocumentContent(user.getId(), id, request.getInputStream(), request.getContentLengthLong());
     return ResponseEntity.noContent().build();
   }
 }
@@ -0,0 +1,9 @@
+package com.echoproject.echo.document.domain;
+
+import java.util.Set;
+import java.util.UUID;
+
+public record DocumentAccess(UUID ownerId, Set<UUID> collaboratorIds) {
+  public boolean allows(UUID userId) { return DocumentAccessControl.hasAccess(userId, ownerId, collaboratorIds); }
+  public boolean isOwner(UUID userId) { return DocumentAccessControl.isOwner(userId, ownerId); }
+}
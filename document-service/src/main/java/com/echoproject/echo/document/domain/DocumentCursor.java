@@ -0,0 +1,36 @@
+package com.echoproject.echo.document.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+// Opaque keyset position: the sort key of the last row returned plus its id as a tie-breaker.
+public record DocumentCursor(DocumentSort sort, String value, UUID id) {
+
+  public static DocumentCursor after(DocumentSort sort, String title, Instant updatedAt, UUID id) {
+    return new DocumentCursor(sort, sort == DocumentSort.TITLE ? title : updatedAt.toString(), id);
+  }
+
+  public String encode() {
+    String raw = sort.name() + "|" + id + "|" + value;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // Returns null for anything that is not a cursor this sort produced.
+  public static DocumentCursor decode(String encoded, DocumentSort expectedSort) {
+    try {
+      String[] parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split("\\|", 3);
+      if (parts.length != 3) return null;
+      DocumentSort sort = DocumentSort.valueOf(parts[0]);
+      if (sort != expectedSort) return null;
+      DocumentCursor cursor = new DocumentCursor(sort, parts[2], UUID.fromString(parts[1]));
+      if (sort == DocumentSort.UPDATED_AT) cursor.updatedAt();
+      return cursor;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  public Instant updatedAt() { return Instant.parse(value); }
+}
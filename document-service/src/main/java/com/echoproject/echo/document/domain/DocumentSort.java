@@ -0,0 +1,12 @@
+package com.echoproject.echo.document.domain;
+
+public enum DocumentSort {
+  UPDATED_AT,
+  TITLE;
+
+  public static DocumentSort fromParam(String param) {
+    if (param == null || param.isBlank() || param.equalsIgnoreCase("updatedAt")) return UPDATED_AT;
+    if (param.equalsIgnoreCase("title")) return TITLE;
+    return null;
+  }
+}
@@ -0,0 +1,12 @@
+package com.echoproject.echo.document.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A full-state save held by the write-behind buffer. stored is already codec-encoded, and
+// throughSeq is the update-log head when the save arrived: the state supersedes the log up to
+// there and no further, whatever is appended before the flush.
+public record PendingContent(
+    UUID documentId, byte[] stored, long rawLength, String contentHash, long throughSeq, LocalDateTime receivedAt) {
+  public long size() { return stored.length; }
+}
@@ -0,0 +1,19 @@
+package com.echoproject.echo.document.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DocumentActivityResponse {
+  private UUID documentId;
+  private UUID ownerId;
+  private String contentHash;
+  private long baseSeq;
+  private long headSeq;
+  // Raw bytes saved or appended over the document's lifetime; only ever grows.
+  private long writtenBytes;
+  private LocalDateTime updatedAt;
+}
@@ -4,11 +4,15 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import org.springframework.core.io.Resource;
 
 @Getter
 @AllArgsConstructor
 public class DocumentContentResponse {
   private UUID documentId;
-  private byte[] state;
+  // Null when the document has no content yet.
+  private String contentHash;
   private LocalDateTime updatedAt;
+  // Null for header-only reads.
+  private Resource content;
 }
@@ -0,0 +1,12 @@
+package com.echoproject.echo.document.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DocumentPageResponse {
+  private List<DocumentResponse> items;
+  private String nextCursor;
+}
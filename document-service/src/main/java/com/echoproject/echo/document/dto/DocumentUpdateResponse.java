@@ -0,0 +1,11 @@
+package com.echoproject.echo.document.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DocumentUpdateResponse {
+  private long seq;
+  private byte[] update;
+}
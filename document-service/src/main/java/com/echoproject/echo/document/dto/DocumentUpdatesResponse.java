@@ -0,0 +1,17 @@
+package com.echoproject.echo.document.dto;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class DocumentUpdatesResponse {
+  private UUID documentId;
+  private long baseSeq;
+  private long headSeq;
+  // Present only when the caller is behind the base snapshot and must start from it.
+  private byte[] base;
+  private List<DocumentUpdateResponse> updates;
+}
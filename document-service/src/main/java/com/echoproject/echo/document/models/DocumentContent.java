@@ -1,5 +1,6 @@
 package com.echoproject.echo.document.models;
 
+import com.echoproject.echo.common.compression.CompressedContentConverter;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -24,9 +25,22 @@ public class DocumentContent {
   @JoinColumn(name = "document_id", unique = true, nullable = false)
   private Document document;
 
+  @Convert(converter = CompressedContentConverter.class)
   @Column(name = "state", columnDefinition = "bytea")
   private byte[] state;
 
+  // SHA-256 of the raw state, served as its ETag.
+  @Column(name = "content_hash", length = 64)
+  private String contentHash;
+
+  // Last update-log sequence folded into state.
+  @Column(name = "base_seq", nullable = false)
+  private long baseSeq;
+
+  // Only ever advanced by the atomic append in DocumentContentRepository.
+  @Column(name = "head_seq", nullable = false, updatable = false)
+  private long headSeq;
+
   @UpdateTimestamp
   @Column(name = "updated_at")
   private LocalDateTime updatedAt;
@@ -0,0 +1,6 @@
+package com.echoproject.echo.document.models;
+
+public enum DocumentRole {
+  OWNER,
+  COLLABORATOR
+}
@@ -0,0 +1,49 @@
+package com.echoproject.echo.document.models;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "document_updates")
+@IdClass(DocumentUpdate.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class DocumentUpdate {
+
+  @Id
+  @Column(name = "document_id")
+  private UUID documentId;
+
+  @Id
+  @Column(name = "seq")
+  private long seq;
+
+  @Column(name = "payload", columnDefinition = "bytea", nullable = false)
+  private byte[] payload;
+
+  @Column(name = "created_at", nullable = false)
+  private Instant createdAt;
+
+  public DocumentUpdate(UUID documentId, long seq, byte[] payload) {
+    this.documentId = documentId;
+    this.seq = seq;
+    this.payload = payload;
+    this.createdAt = Instant.now();
+  }
+
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static class Key implements Serializable {
+    private UUID documentId;
+    private long seq;
+  }
+}
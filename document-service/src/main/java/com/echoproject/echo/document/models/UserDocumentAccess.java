@@ -0,0 +1,53 @@
+package com.echoproject.echo.document.models;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Denormalized (user, document) membership kept in step with documents and document_collaborators,
+// so listing and access checks are primary-key / index lookups instead of an OR over a subquery.
+// The document's title and updated_at are copied in so a user's listing pages straight off the
+// (user_id, sort key, document_id) indexes.
+@Entity
+@Table(name = "user_document_access")
+@IdClass(UserDocumentAccess.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserDocumentAccess {
+
+  @Id
+  @Column(name = "user_id")
+  private UUID userId;
+
+  @Id
+  @Column(name = "document_id")
+  private UUID documentId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "role", nullable = false)
+  private DocumentRole role;
+
+  @Column(name = "last_activity", nullable = false)
+  private Instant lastActivity;
+
+  @Column(name = "doc_title", nullable = false)
+  private String docTitle;
+
+  @Column(name = "doc_updated_at", nullable = false)
+  private Instant docUpdatedAt;
+
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static class Key implements Serializable {
+    private UUID userId;
+    private UUID documentId;
+  }
+}
@@ -1,13 +1,86 @@
 package com.echoproject.echo.document.repository;
 
 import com.echoproject.echo.document.models.DocumentContent;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface DocumentContentRepository extends JpaRepository<DocumentContent, UUID> {
   @Query("SELECT dc FROM DocumentContent dc WHERE dc.document.id = :documentId")
   Optional<DocumentContent> findByDocumentId(UUID documentId);
+
+  // Read as a projection so callers always see committed state, not a cached entity.
+  @Query("SELECT dc.state AS state, dc.baseSeq AS baseSeq, dc.headSeq AS headSeq, dc.updatedAt AS updatedAt "
+      + "FROM DocumentContent dc WHERE dc.document.id = :documentId")
+  Optional<ContentSnapshot> findSnapshotByDocumentId(UUID documentId);
+
+  @Query("SELECT dc.contentHash AS contentHash, dc.baseSeq AS baseSeq, dc.headSeq AS headSeq, dc.updatedAt AS updatedAt "
+      + "FROM DocumentContent dc WHERE dc.document.id = :documentId")
+  Optional<ContentHeader> findHeaderByDocumentId(UUID documentId);
+
+  // Returns nothing if the state has changed since contentHash was read.
+  @Query(value = "SELECT state FROM document_content WHERE document_id = :documentId AND content_hash = :contentHash",
+      nativeQuery = true)
+  byte[] findStoredStateByDocumentIdAndHash(UUID documentId, String contentHash);
+
+  // Row-level upsert, so concurrent appends to one document serialize on its content row.
+  @Query(value = "INSERT INTO document_content (id, document_id, state, written_bytes, created_at, updated_at, "
+      + "base_seq, head_seq) VALUES (gen_random_uuid(), :documentId, NULL, :updateBytes, now(), now(), 0, 1) "
+      + "ON CONFLICT (document_id) DO UPDATE SET head_seq = document_content.head_seq + 1, "
+      + "written_bytes = document_content.written_bytes + :updateBytes, updated_at = now() "
+      + "RETURNING head_seq", nativeQuery = true)
+  long nextSeq(UUID documentId, long updateBytes);
+
+  // Keyset over (updated_at, document_id), oldest change first.
+  @Query(value = "SELECT c.document_id AS documentId, d.owner_id AS ownerId, c.content_hash AS contentHash, "
+      + "c.base_seq AS baseSeq, c.head_seq AS headSeq, c.written_bytes AS writtenBytes, c.updated_at AS updatedAt "
+      + "FROM document_content c JOIN documents d ON d.id = c.document_id "
+      + "WHERE (c.updated_at, c.document_id) > (:afterUpdatedAt, :afterDocumentId) "
+      + "ORDER BY c.updated_at, c.document_id LIMIT :limit", nativeQuery = true)
+  List<ContentActivity> findActivityAfter(LocalDateTime afterUpdatedAt, UUID afterDocumentId, int limit);
+
+  @Query(value = "SELECT id FROM document_content WHERE id > :afterId "
+      + "AND CASE WHEN length(state) > 0 THEN get_byte(state, 0) END NOT IN (:codecIds) ORDER BY id LIMIT :limit",
+      nativeQuery = true)
+  List<UUID> findIdsNotStoredWith(UUID afterId, Collection<Integer> codecIds, int limit);
+
+  @Query(value = "SELECT state FROM document_content WHERE id = :id", nativeQuery = true)
+  byte[] findStoredStateById(UUID id);
+
+  // Compare-and-set on the stored bytes so a concurrent save is never overwritten.
+  @Modifying
+  @Transactional
+  @Query(value = "UPDATE document_content SET state = :newState WHERE id = :id AND state = :oldState", nativeQuery = true)
+  int replaceStoredState(UUID id, byte[] oldState, byte[] newState);
+
+  interface ContentSnapshot {
+    byte[] getState();
+    long getBaseSeq();
+    long getHeadSeq();
+    LocalDateTime getUpdatedAt();
+  }
+
+  interface ContentActivity {
+    UUID getDocumentId();
+    UUID getOwnerId();
+    String getContentHash();
+    long getBaseSeq();
+    long getHeadSeq();
+    long getWrittenBytes();
+    LocalDateTime getUpdatedAt();
+  }
+
+  interface ContentHeader {
+    String getContentHash();
+    long getBaseSeq();
+    long getHeadSeq();
+    LocalDateTime getUpdatedAt();
+  }
 }
 
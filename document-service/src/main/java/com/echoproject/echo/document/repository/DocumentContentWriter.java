@@ -0,0 +1,101 @@
+package com.echoproject.echo.document.repository;
+
+import com.echoproject.echo.common.compression.EncodedContent;
+import com.echoproject.echo.document.domain.PendingContent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Plain JDBC so the encoded state is bound as a stream straight from its spool; going through
+// the entity would need the whole value as a byte[].
+@Repository
+@RequiredArgsConstructor
+public class DocumentContentWriter {
+
+  private static final String UPSERT =
+      "INSERT INTO document_content (id, document_id, state, content_hash, written_bytes, created_at, updated_at, "
+          + "base_seq, head_seq) VALUES (gen_random_uuid(), ?, ?, ?, ?, now(), now(), 0, 0) "
+          + "ON CONFLICT (document_id) DO UPDATE SET state = EXCLUDED.state, content_hash = EXCLUDED.content_hash, "
+          + "written_bytes = document_content.written_bytes + EXCLUDED.written_bytes, "
+          + "base_seq = GREATEST(document_content.base_seq, COALESCE(?, document_content.head_seq)), "
+          + "updated_at = now()";
+
+  private static final String OVERWRITE = UPSERT + " RETURNING base_seq";
+
+  private static final String REPLACE_BASE =
+      "UPDATE document_content SET state = ?, content_hash = ?, base_seq = ?, updated_at = now() "
+          + "WHERE document_id = ? AND base_seq < ? AND head_seq >= ?";
+
+  private static final String FOLD_LOG = "DELETE FROM document_updates WHERE document_id = ? AND seq <= ?";
+
+  private static final String HEAD_SEQ = "SELECT head_seq FROM document_content WHERE document_id = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  // Replaces the state and folds the whole current update log into it. Returns the new base seq.
+  public long overwrite(UUID documentId, EncodedContent content) {
+    try (InputStream stored = content.openStored()) {
+      Long baseSeq = jdbcTemplate.query(connection -> {
+        PreparedStatement ps = connection.prepareStatement(OVERWRITE);
+        ps.setObject(1, documentId);
+        ps.setBinaryStream(2, stored, content.storedLength());
+        ps.setString(3, content.contentHash());
+        ps.setLong(4, content.rawLength());
+        ps.setNull(5, Types.BIGINT);
+        return ps;
+      }, rs -> rs.next() ? rs.getLong(1) : null);
+      if (baseSeq == null) throw new IllegalStateException("Content upsert returned no row");
+      return baseSeq;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Installs a compacted state as the base through throughSeq. 0 when the base is already at or
+  // past it, or the log never reached it.
+  public int replaceBase(UUID documentId, EncodedContent content, long throughSeq) {
+    try (InputStream stored = content.openStored()) {
+      return jdbcTemplate.update(connection -> {
+        PreparedStatement ps = connection.prepareStatement(REPLACE_BASE);
+        ps.setBinaryStream(1, stored, content.storedLength());
+        ps.setString(2, content.contentHash());
+        ps.setLong(3, throughSeq);
+        ps.setObject(4, documentId);
+        ps.setLong(5, throughSeq);
+        ps.setLong(6, throughSeq);
+        return ps;
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // The update-log head right now, for a save that will be written later.
+  public long currentHeadSeq(UUID documentId) {
+    List<Long> seqs = jdbcTemplate.queryForList(HEAD_SEQ, Long.class, documentId);
+    return seqs.isEmpty() ? 0 : seqs.get(0);
+  }
+
+  // Buffered overwrites for many documents as two JDBC batches. Each folds its update log only
+  // through the seq captured with it, so updates appended since (on any replica) survive.
+  public void overwriteAll(List<PendingContent> contents) {
+    jdbcTemplate.batchUpdate(UPSERT, contents, contents.size(), (ps, content) -> {
+      ps.setObject(1, content.documentId());
+      ps.setBytes(2, content.stored());
+      ps.setString(3, content.contentHash());
+      ps.setLong(4, content.rawLength());
+      ps.setLong(5, content.throughSeq());
+    });
+    jdbcTemplate.batchUpdate(FOLD_LOG, contents, contents.size(), (ps, content) -> {
+      ps.setObject(1, content.documentId());
+      ps.setLong(2, content.throughSeq());
+    });
+  }
+}
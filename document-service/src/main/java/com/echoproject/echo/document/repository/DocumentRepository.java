@@ -1,12 +1,40 @@
 package com.echoproject.echo.document.repository;
 
 import com.echoproject.echo.document.models.Document;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface DocumentRepository extends JpaRepository<Document, UUID> {
-  @Query("SELECT d FROM Document d WHERE d.ownerId = :userId OR d.id IN (SELECT dc.document.id FROM DocumentCollaborator dc WHERE dc.userId = :userId)")
-  List<Document> findAllAccessibleByUser(UUID userId);
+  // Driven by the user's (user_id, sort key, document_id) access index. The row-value bound becomes
+  // an index condition, so every page reads limit rows in index order without sorting the user's set.
+  @Query("SELECT d FROM UserDocumentAccess a JOIN Document d ON d.id = a.documentId WHERE a.userId = :userId "
+      + "ORDER BY a.docUpdatedAt DESC, a.documentId DESC")
+  List<Document> findAccessibleByRecent(UUID userId, Pageable page);
+
+  @Query("SELECT d FROM UserDocumentAccess a JOIN Document d ON d.id = a.documentId WHERE a.userId = :userId "
+      + "AND (a.docUpdatedAt, a.documentId) < (:updatedAt, :id) "
+      + "ORDER BY a.docUpdatedAt DESC, a.documentId DESC")
+  List<Document> findAccessibleByRecentAfter(UUID userId, Instant updatedAt, UUID id, Pageable page);
+
+  @Query("SELECT d FROM UserDocumentAccess a JOIN Document d ON d.id = a.documentId WHERE a.userId = :userId "
+      + "ORDER BY a.docTitle, a.documentId")
+  List<Document> findAccessibleByTitle(UUID userId, Pageable page);
+
+  @Query("SELECT d FROM UserDocumentAccess a JOIN Document d ON d.id = a.documentId WHERE a.userId = :userId "
+      + "AND (a.docTitle, a.documentId) > (:title, :id) "
+      + "ORDER BY a.docTitle, a.documentId")
+  List<Document> findAccessibleByTitleAfter(UUID userId, String title, UUID id, Pageable page);
+
+  // Clears the persistence context so a row loaded earlier in the transaction is not flushed again.
+  @Transactional
+  @Modifying(clearAutomatically = true)
+  @Query(value = "WITH access AS (UPDATE user_document_access SET doc_title = :title WHERE document_id = :id) "
+      + "UPDATE documents SET title = :title WHERE id = :id", nativeQuery = true)
+  int updateTitle(UUID id, String title);
 }
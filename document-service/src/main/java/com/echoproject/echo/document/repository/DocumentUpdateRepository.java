@@ -0,0 +1,25 @@
+package com.echoproject.echo.document.repository;
+
+import com.echoproject.echo.document.models.DocumentUpdate;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface DocumentUpdateRepository extends JpaRepository<DocumentUpdate, DocumentUpdate.Key> {
+  @Query("SELECT u FROM DocumentUpdate u WHERE u.documentId = :documentId AND u.seq > :afterSeq ORDER BY u.seq")
+  List<DocumentUpdate> findAfter(UUID documentId, long afterSeq);
+
+  @Modifying
+  @Query(value = "INSERT INTO document_updates (document_id, seq, payload, created_at) VALUES (:documentId, :seq, :payload, now())", nativeQuery = true)
+  void append(UUID documentId, long seq, byte[] payload);
+
+  @Modifying
+  @Query("DELETE FROM DocumentUpdate u WHERE u.documentId = :documentId AND u.seq <= :throughSeq")
+  int deleteThrough(UUID documentId, long throughSeq);
+
+  @Query(value = "SELECT document_id FROM document_updates GROUP BY document_id "
+      + "HAVING COUNT(*) >= :minCount OR SUM(octet_length(payload)) >= :minBytes LIMIT :limit", nativeQuery = true)
+  List<UUID> findCompactionCandidates(long minCount, long minBytes, int limit);
+}
@@ -0,0 +1,33 @@
+package com.echoproject.echo.document.repository;
+
+import com.echoproject.echo.document.models.UserDocumentAccess;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface UserDocumentAccessRepository extends JpaRepository<UserDocumentAccess, UserDocumentAccess.Key> {
+  List<UserDocumentAccess> findByDocumentId(UUID documentId);
+
+  @Transactional
+  @Modifying
+  @Query(value = "INSERT INTO user_document_access (user_id, document_id, role, last_activity, doc_title, doc_updated_at) "
+      + "SELECT :userId, d.id, :role, :now, d.title, d.updated_at FROM documents d WHERE d.id = :documentId "
+      + "ON CONFLICT DO NOTHING", nativeQuery = true)
+  void grant(UUID userId, UUID documentId, String role, Instant now);
+
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM UserDocumentAccess a WHERE a.userId = :userId AND a.documentId = :documentId")
+  void revoke(UUID userId, UUID documentId);
+
+  // Throttled so a 2s autosave loop does not rewrite the row on every save.
+  @Transactional
+  @Modifying
+  @Query("UPDATE UserDocumentAccess a SET a.lastActivity = :now "
+      + "WHERE a.userId = :userId AND a.documentId = :documentId AND a.lastActivity < :staleBefore")
+  int touch(UUID userId, UUID documentId, Instant now, Instant staleBefore);
+}
@@ -0,0 +1,60 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.compression.ContentCodec;
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.document.repository.DocumentContentRepository;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Walks document_content once per process in id order and rewrites rows stored with another
+// codec. Uploads streamed with the configured codec's stream format count as already converted.
+// Rows that stay NONE (small or incompressible) are passed over by the keyset cursor.
+@Component
+@Slf4j
+public class ContentRecompressionJob {
+
+  private final DocumentContentRepository contentRepository;
+  private final ContentCompressor compressor;
+  private final boolean enabled;
+  private final int batchSize;
+
+  private UUID cursor = new UUID(0, 0);
+  private boolean finished;
+  private long rewritten;
+
+  public ContentRecompressionJob(
+      DocumentContentRepository contentRepository,
+      ContentCompressor compressor,
+      @Value("${content.compression.recompress.enabled:true}") boolean enabled,
+      @Value("${content.compression.recompress.batch-size:100}") int batchSize) {
+    this.contentRepository = contentRepository;
+    this.compressor = compressor;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+  }
+
+  @Scheduled(fixedDelayString = "${content.compression.recompress.interval:PT10S}")
+  public void recompressBatch() {
+    if (!enabled || finished) return;
+    ContentCodec target = compressor.getCodec();
+    List<UUID> ids = contentRepository.findIdsNotStoredWith(
+        cursor, List.of((int) target.id(), (int) target.streamCodec().id()), batchSize);
+    for (UUID id : ids) {
+      byte[] stored = contentRepository.findStoredStateById(id);
+      if (stored == null || stored.length == 0) continue;
+      byte[] recoded = compressor.encode(compressor.decode(stored));
+      if (compressor.codecOf(recoded) != compressor.codecOf(stored)) {
+        rewritten += contentRepository.replaceStoredState(id, stored, recoded);
+      }
+    }
+    if (!ids.isEmpty()) cursor = ids.get(ids.size() - 1);
+    if (ids.size() < batchSize) {
+      finished = true;
+      log.info("Content recompression to {} finished: {} rows rewritten", target, rewritten);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.exception.NotFoundException;
+import com.echoproject.echo.document.domain.DocumentAccess;
+import com.echoproject.echo.document.models.DocumentRole;
+import com.echoproject.echo.document.models.UserDocumentAccess;
+import com.echoproject.echo.document.repository.UserDocumentAccessRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Owner and collaborator ids per document, so access checks (and every autosave) skip the two
+// SELECTs. Entries are invalidated by whoever changes membership, here and on every other replica
+// through a NOTIFY on CHANNEL (see DocumentAccessInvalidationListener); the TTL is only a backstop.
+@Component
+public class DocumentAccessCache {
+
+  static final String CHANNEL = "document_access_invalidated";
+
+  private final UserDocumentAccessRepository accessRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final Cache<UUID, DocumentAccess> cache;
+
+  public DocumentAccessCache(
+      UserDocumentAccessRepository accessRepository,
+      JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${document.access-cache.max-size:50000}") long maxSize,
+      @Value("${document.access-cache.ttl:PT10M}") Duration ttl) {
+    this.accessRepository = accessRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.cache = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "document.access");
+  }
+
+  public DocumentAccess get(UUID documentId) {
+    DocumentAccess access = cache.get(documentId, this::load);
+    if (access == null) throw new NotFoundException("Document not found");
+    return access;
+  }
+
+  // Evicts now and again after commit, so a concurrent reader cannot re-cache pre-commit state.
+  // NOTIFY inside the caller's transaction is only delivered to the other replicas on commit.
+  public void invalidate(UUID documentId) {
+    cache.invalidate(documentId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override public void afterCompletion(int status) { cache.invalidate(documentId); }
+      });
+    }
+    jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, documentId.toString());
+  }
+
+  void evictLocal(UUID documentId) {
+    cache.invalidate(documentId);
+  }
+
+  void evictAllLocal() {
+    cache.invalidateAll();
+  }
+
+  private DocumentAccess load(UUID documentId) {
+    UUID ownerId = null;
+    Set<UUID> collaboratorIds = new LinkedHashSet<>();
+    for (UserDocumentAccess row : accessRepository.findByDocumentId(documentId)) {
+      if (row.getRole() == DocumentRole.OWNER) ownerId = row.getUserId();
+      else collaboratorIds.add(row.getUserId());
+    }
+    if (ownerId == null) return null;
+    return new DocumentAccess(ownerId, Collections.unmodifiableSet(collaboratorIds));
+  }
+}
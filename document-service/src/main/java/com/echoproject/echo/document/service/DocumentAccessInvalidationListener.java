@@ -0,0 +1,105 @@
+package com.echoproject.echo.document.service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+// Holds one connection LISTENing on the access-cache channel and evicts whatever other replicas
+// invalidate. Notifications sent while the connection is down are lost, so every (re)connect
+// clears the local cache before resuming. The connection is opened outside the Hikari pool: it is
+// held for the life of the application, and a pooled one would be retired by maxLifetime and
+// taken away from request handling.
+@Component
+@Slf4j
+public class DocumentAccessInvalidationListener implements SmartLifecycle {
+
+  private static final int POLL_TIMEOUT_MS = 5_000;
+
+  private final String url;
+  private final String username;
+  private final String password;
+  private final DocumentAccessCache accessCache;
+  private final boolean enabled;
+  private final Duration reconnectDelay;
+  private volatile boolean running;
+  private Thread thread;
+
+  public DocumentAccessInvalidationListener(
+      @Value("${spring.datasource.url}") String url,
+      @Value("${spring.datasource.username}") String username,
+      @Value("${spring.datasource.password}") String password,
+      DocumentAccessCache accessCache,
+      @Value("${document.access-cache.broadcast.enabled:true}") boolean enabled,
+      @Value("${document.access-cache.broadcast.reconnect-delay:PT5S}") Duration reconnectDelay) {
+    this.url = url;
+    this.username = username;
+    this.password = password;
+    this.accessCache = accessCache;
+    this.enabled = enabled;
+    this.reconnectDelay = reconnectDelay;
+  }
+
+  @Override
+  public void start() {
+    if (!enabled) return;
+    running = true;
+    thread = new Thread(this::run, "document-access-listener");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (thread != null) thread.interrupt();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void run() {
+    while (running) {
+      try (Connection connection = DriverManager.getConnection(url, username, password)) {
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + DocumentAccessCache.CHANNEL);
+        }
+        accessCache.evictAllLocal();
+        PGConnection pg = connection.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+          if (notifications == null) continue;
+          for (PGNotification notification : notifications) {
+            evict(notification.getParameter());
+          }
+        }
+      } catch (SQLException | RuntimeException e) {
+        if (!running) return;
+        log.warn("Access cache invalidation listener lost its connection, retrying in {}: {}", reconnectDelay, e.getMessage());
+        try {
+          Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException ie) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void evict(String payload) {
+    try {
+      accessCache.evictLocal(UUID.fromString(payload));
+    } catch (IllegalArgumentException e) {
+      log.debug("Ignoring malformed access invalidation payload {}", payload);
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.compression.EncodedContent;
+import com.echoproject.echo.document.domain.PendingContent;
+import com.echoproject.echo.document.repository.DocumentContentWriter;
+import com.echoproject.echo.document.repository.DocumentUpdateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+// Optional write-behind for full-state saves. Only the latest state per document is kept and
+// all buffered documents are written in one transaction per interval. An entry is written
+// exactly once: it is claimed out of `pending` into `inFlight` before the write and dropped
+// from `inFlight` after commit, so readers always find it in one of the two.
+@Component
+@Slf4j
+public class DocumentContentBuffer {
+
+  private final DocumentContentWriter contentWriter;
+  private final DocumentUpdateRepository updateRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean enabled;
+  private final long maxBytes;
+  private final int maxDocuments;
+
+  private final ConcurrentMap<UUID, PendingContent> pending = new ConcurrentHashMap<>();
+  private final ConcurrentMap<UUID, PendingContent> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong bufferedBytes = new AtomicLong();
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private final Counter bufferedSaves;
+  private final Counter directSaves;
+  private final Counter coalesced;
+  private final Counter flushed;
+  private final Timer flushTimer;
+
+  public DocumentContentBuffer(
+      DocumentContentWriter contentWriter,
+      DocumentUpdateRepository updateRepository,
+      PlatformTransactionManager transactionManager,
+      MeterRegistry meterRegistry,
+      @Value("${document.content.write-behind.enabled:false}") boolean enabled,
+      @Value("${document.content.write-behind.max-bytes:64MB}") DataSize maxBytes,
+      @Value("${document.content.write-behind.max-documents:10000}") int maxDocuments) {
+    this.contentWriter = contentWriter;
+    this.updateRepository = updateRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.enabled = enabled;
+    this.maxBytes = maxBytes.toBytes();
+    this.maxDocuments = maxDocuments;
+    this.bufferedSaves = Counter.builder("document.content.saves").tag("mode", "buffered").register(meterRegistry);
+    this.directSaves = Counter.builder("document.content.saves").tag("mode", "direct").register(meterRegistry);
+    this.coalesced = Counter.builder("document.content.coalesced")
+        .description("Buffered saves superseded by a newer save before being written")
+        .register(meterRegistry);
+    this.flushed = Counter.builder("document.content.flushed").register(meterRegistry);
+    this.flushTimer = Timer.builder("document.content.flush").register(meterRegistry);
+    meterRegistry.gauge("document.content.buffer.documents", pending, ConcurrentMap::size);
+    meterRegistry.gauge("document.content.buffer.bytes", bufferedBytes);
+  }
+
+  public void save(UUID documentId, EncodedContent encoded) throws IOException {
+    if (!enabled || encoded.storedLength() > maxBytes) {
+      writeNow(documentId, encoded);
+      return;
+    }
+    byte[] stored;
+    try (InputStream in = encoded.openStored()) {
+      stored = in.readAllBytes();
+    }
+    PendingContent entry = new PendingContent(documentId, stored, encoded.rawLength(), encoded.contentHash(),
+        contentWriter.currentHeadSeq(documentId), LocalDateTime.now());
+    bufferedSaves.increment();
+    PendingContent replaced = pending.put(documentId, entry);
+    bufferedBytes.addAndGet(entry.size() - (replaced != null ? replaced.size() : 0));
+    if (replaced != null) coalesced.increment();
+
+    if (bufferedBytes.get() > maxBytes || pending.size() > maxDocuments) flushAll();
+  }
+
+  // The not-yet-committed state for a document, which reads must prefer over the table.
+  public Optional<PendingContent> find(UUID documentId) {
+    if (!enabled) return Optional.empty();
+    PendingContent entry = pending.get(documentId);
+    return Optional.ofNullable(entry != null ? entry : inFlight.get(documentId));
+  }
+
+  @Scheduled(fixedDelayString = "${document.content.write-behind.interval:PT2S}")
+  public void flushAll() {
+    if (pending.isEmpty()) return;
+    flushLock.lock();
+    try {
+      List<PendingContent> batch = new ArrayList<>();
+      for (PendingContent entry : pending.values()) {
+        if (claim(entry)) batch.add(entry);
+      }
+      if (batch.isEmpty()) return;
+      // Stable row order, so concurrent writers cannot deadlock on the content rows.
+      batch.sort(Comparator.comparing(PendingContent::documentId));
+      try {
+        flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> contentWriter.overwriteAll(batch)));
+        flushed.increment(batch.size());
+      } catch (RuntimeException e) {
+        log.warn("Write-behind flush of {} documents failed, keeping them buffered: {}", batch.size(), e.getMessage());
+        batch.forEach(this::unclaim);
+      } finally {
+        batch.forEach(entry -> inFlight.remove(entry.documentId(), entry));
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  // Writes a document's pending state inside the caller's transaction. Update-log operations
+  // call this first so a buffered overwrite can never land after, and fold away, later updates.
+  public void flushDocument(UUID documentId) {
+    if (!enabled || (!pending.containsKey(documentId) && !inFlight.containsKey(documentId))) return;
+    // Taking the lock also waits out a batch flush that is still committing this document.
+    flushLock.lock();
+    try {
+      PendingContent entry = pending.get(documentId);
+      if (entry == null || !claim(entry)) return;
+      if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+        try {
+          transactionTemplate.executeWithoutResult(status -> contentWriter.overwriteAll(List.of(entry)));
+          flushed.increment();
+        } catch (RuntimeException e) {
+          unclaim(entry);
+          throw e;
+        } finally {
+          inFlight.remove(documentId, entry);
+        }
+        return;
+      }
+      contentWriter.overwriteAll(List.of(entry));
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override public void afterCompletion(int status) {
+          if (status == STATUS_COMMITTED) flushed.increment();
+          else unclaim(entry);
+          inFlight.remove(documentId, entry);
+        }
+      });
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void drain() {
+    flushAll();
+    if (!pending.isEmpty()) log.error("Write-behind buffer shut down with {} unsaved documents", pending.size());
+  }
+
+  private void writeNow(UUID documentId, EncodedContent encoded) {
+    directSaves.increment();
+    if (!enabled) {
+      write(documentId, encoded);
+      return;
+    }
+    // Serialized with flushes, and drops any older buffered state so it cannot land afterwards.
+    flushLock.lock();
+    try {
+      PendingContent stale = pending.remove(documentId);
+      if (stale != null) {
+        bufferedBytes.addAndGet(-stale.size());
+        coalesced.increment();
+      }
+      write(documentId, encoded);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void write(UUID documentId, EncodedContent encoded) {
+    transactionTemplate.executeWithoutResult(status -> {
+      // A full overwrite supersedes whatever incremental updates were logged before it.
+      long baseSeq = contentWriter.overwrite(documentId, encoded);
+      updateRepository.deleteThrough(documentId, baseSeq);
+    });
+  }
+
+  private boolean claim(PendingContent entry) {
+    inFlight.put(entry.documentId(), entry);
+    if (pending.remove(entry.documentId(), entry)) {
+      bufferedBytes.addAndGet(-entry.size());
+      return true;
+    }
+    inFlight.remove(entry.documentId(), entry);
+    return false;
+  }
+
+  // Puts a failed write back unless a newer save has already replaced it.
+  private void unclaim(PendingContent entry) {
+    if (pending.putIfAbsent(entry.documentId(), entry) == null) bufferedBytes.addAndGet(entry.size());
+  }
+}
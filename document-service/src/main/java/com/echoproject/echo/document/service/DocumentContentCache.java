@@ -0,0 +1,165 @@
+package com.echoproject.echo.document.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+// Decoded content of recently read or saved documents, held in direct buffers so reconnect storms
+// neither re-read the bytea nor put megabytes per document on the heap. One entry per document,
+// tagged with its content hash, so a lookup can only ever return the state the caller's header
+// names. Evicted buffers are freed by the GC once no response is still streaming from them.
+@Component
+public class DocumentContentCache {
+
+  private static final int COPY_BUFFER = 64 * 1024;
+
+  private final boolean enabled;
+  private final long maxEntryBytes;
+  private final Cache<UUID, CachedContent> cache;
+
+  public DocumentContentCache(
+      MeterRegistry meterRegistry,
+      @Value("${document.content-cache.enabled:true}") boolean enabled,
+      @Value("${document.content-cache.max-bytes:256MB}") DataSize maxBytes,
+      @Value("${document.content-cache.max-entry-bytes:16MB}") DataSize maxEntryBytes) {
+    this.enabled = enabled;
+    this.maxEntryBytes = Math.min(maxEntryBytes.toBytes(), Integer.MAX_VALUE);
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(maxBytes.toBytes())
+        .weigher((UUID documentId, CachedContent content) -> content.buffer().capacity())
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "document.content");
+    meterRegistry.gauge("document.content.cache.bytes", cache,
+        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+  }
+
+  public boolean accepts(long rawLength) {
+    return enabled && rawLength > 0 && rawLength <= maxEntryBytes;
+  }
+
+  public Optional<Resource> find(UUID documentId, String contentHash) {
+    if (!enabled || contentHash == null) return Optional.empty();
+    // Peek first so an entry for another state neither counts as a hit nor stays warm.
+    CachedContent content = cache.policy().getIfPresentQuietly(documentId);
+    if (content == null || !content.contentHash().equals(contentHash)) return Optional.empty();
+    content = cache.getIfPresent(documentId);
+    if (content == null || !content.contentHash().equals(contentHash)) return Optional.empty();
+    return Optional.of(new BufferResource(content.buffer()));
+  }
+
+  // Copies the decoded content off-heap and returns a resource over the cached copy, or the
+  // given resource unchanged when it is too large to cache.
+  public Resource put(UUID documentId, String contentHash, Resource decoded) {
+    try {
+      long length = decoded.contentLength();
+      if (contentHash == null || !accepts(length)) return decoded;
+      ByteBuffer buffer;
+      try {
+        buffer = ByteBuffer.allocateDirect((int) length);
+      } catch (OutOfMemoryError e) {
+        // Direct memory is capped by -XX:MaxDirectMemorySize; serve uncached rather than fail.
+        return decoded;
+      }
+      try (InputStream in = decoded.getInputStream()) {
+        byte[] chunk = new byte[COPY_BUFFER];
+        int n;
+        while (buffer.hasRemaining() && (n = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()))) > 0) {
+          buffer.put(chunk, 0, n);
+        }
+      }
+      if (buffer.hasRemaining()) return decoded;
+      ByteBuffer cached = buffer.flip().asReadOnlyBuffer();
+      cache.put(documentId, new CachedContent(contentHash, cached));
+      return new BufferResource(cached);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Drops the cached state of the document, now and again after commit when called inside a
+  // transaction, so a reader racing the write cannot leave the old state behind.
+  public void invalidate(UUID documentId) {
+    if (!enabled) return;
+    cache.invalidate(documentId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override public void afterCompletion(int status) { cache.invalidate(documentId); }
+      });
+    }
+  }
+
+  record CachedContent(String contentHash, ByteBuffer buffer) {}
+
+  // Each resource reads through its own duplicate, so concurrent responses never share a position.
+  private static class BufferResource extends AbstractResource {
+    private final ByteBuffer buffer;
+
+    BufferResource(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new BufferInputStream(buffer.duplicate());
+    }
+
+    @Override
+    public long contentLength() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public String getDescription() {
+      return "Cached content [" + buffer.remaining() + " bytes]";
+    }
+  }
+
+  private static class BufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    BufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) return 0;
+      if (!buffer.hasRemaining()) return -1;
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -1,31 +1,52 @@
 package com.echoproject.echo.document.service;
 
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.common.compression.ContentHash;
+import com.echoproject.echo.common.compression.EncodedContent;
+import com.echoproject.echo.common.concurrent.ConcurrentCalls;
 import com.echoproject.echo.common.exception.BadRequestException;
+import com.echoproject.echo.common.exception.ContentUnavailableException;
 import com.echoproject.echo.common.exception.NotFoundException;
+import com.echoproject.echo.document.domain.DocumentAccess;
 import com.echoproject.echo.document.domain.DocumentAccessControl;
+import com.echoproject.echo.document.domain.DocumentCursor;
+import com.echoproject.echo.document.domain.DocumentSort;
+import com.echoproject.echo.document.domain.PendingContent;
 import com.echoproject.echo.document.dto.AddCollaboratorRequest;
 import com.echoproject.echo.document.dto.CollaboratorResponse;
 import com.echoproject.echo.document.dto.CreateDocumentRequest;
 import com.echoproject.echo.document.dto.DocumentContentResponse;
+import com.echoproject.echo.document.dto.DocumentPageResponse;
 import com.echoproject.echo.document.dto.DocumentResponse;
 import com.echoproject.echo.document.dto.UpdateDocumentRequest;
 import com.echoproject.echo.document.models.Document;
 import com.echoproject.echo.document.models.DocumentCollaborator;
-import com.echoproject.echo.document.models.DocumentContent;
+import com.echoproject.echo.document.models.DocumentRole;
 import com.echoproject.echo.document.repository.DocumentCollaboratorRepository;
 import com.echoproject.echo.document.repository.DocumentContentRepository;
 import com.echoproject.echo.document.repository.DocumentRepository;
+import com.echoproject.echo.document.repository.UserDocumentAccessRepository;
 import com.echoproject.echo.notification.client.CollaborationServiceClient;
 import com.echoproject.echo.notification.models.NotificationType;
 import com.echoproject.echo.notification.service.NotificationService;
 import com.echoproject.echo.user.dto.UserSearchResponse;
 import com.echoproject.echo.user.client.UserServiceClient;
+import com.echoproject.echo.user.client.UserServiceClient.UserSummary;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -33,39 +54,81 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class DocumentService {
 
+  private static final Duration ACTIVITY_RESOLUTION = Duration.ofMinutes(1);
+  private static final int DEFAULT_PAGE_SIZE = 30;
+  private static final int MAX_PAGE_SIZE = 100;
+  private static final int CONTENT_READ_ATTEMPTS = 3;
+  private static final Duration UNFOLDED_RETRY_AFTER = Duration.ofSeconds(1);
+
   private final DocumentRepository documentRepository;
   private final DocumentCollaboratorRepository collaboratorRepository;
   private final DocumentContentRepository contentRepository;
   private final UserServiceClient userClient;
   private final NotificationService notificationService;
   private final CollaborationServiceClient collaborationServiceClient;
+  private final ConcurrentCalls concurrentCalls;
+  private final DocumentAccessCache accessCache;
+  private final UserDocumentAccessRepository accessRepository;
+  private final ContentCompressor compressor;
+  private final DocumentContentBuffer contentBuffer;
+  private final DocumentContentCache contentCache;
+  private final DocumentUpdateCompactor updateCompactor;
 
   @Transactional
   public DocumentResponse createDocument(UUID userId, CreateDocumentRequest request) {
     Document document = new Document(request.getTitle(), userId);
-    documentRepository.save(document);
+    documentRepository.saveAndFlush(document);
+    accessRepository.grant(userId, document.getId(), DocumentRole.OWNER.name(), document.getCreatedAt());
     var sum = userClient.getSummaries(java.util.Set.of(userId)).get(userId);
     String ownerUsername = sum != null ? sum.username() : null;
     return toResponseWithoutCollaborators(document, ownerUsername);
   }
 
   @Transactional(readOnly = true)
-  public List<DocumentResponse> getUserDocuments(UUID userId) {
-    List<Document> documents = documentRepository.findAllAccessibleByUser(userId);
+  public DocumentPageResponse getUserDocuments(UUID userId, String sortParam, String cursorParam, Integer limitParam) {
+    DocumentSort sort = DocumentSort.fromParam(sortParam);
+    if (sort == null) throw new BadRequestException("Unsupported sort");
+    DocumentCursor cursor = null;
+    if (cursorParam != null && !cursorParam.isBlank()) {
+      cursor = DocumentCursor.decode(cursorParam, sort);
+      if (cursor == null) throw new BadRequestException("Invalid cursor");
+    }
+    int limit = limitParam == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limitParam, MAX_PAGE_SIZE));
+    // One extra row tells us whether another page exists without a COUNT.
+    PageRequest page = PageRequest.of(0, limit + 1);
+    List<Document> documents = switch (sort) {
+      case UPDATED_AT -> cursor == null
+          ? documentRepository.findAccessibleByRecent(userId, page)
+          : documentRepository.findAccessibleByRecentAfter(userId, cursor.updatedAt(), cursor.id(), page);
+      case TITLE -> cursor == null
+          ? documentRepository.findAccessibleByTitle(userId, page)
+          : documentRepository.findAccessibleByTitleAfter(userId, cursor.value(), cursor.id(), page);
+    };
+    String nextCursor = null;
+    if (documents.size() > limit) {
+      documents = documents.subList(0, limit);
+      Document last = documents.get(limit - 1);
+      nextCursor = DocumentCursor.after(sort, last.getTitle(), last.getUpdatedAt(), last.getId()).encode();
+    }
     var ownerIds = documents.stream().map(Document::getOwnerId).collect(Collectors.toSet());
     var ownerSummaries = userClient.getSummaries(ownerIds);
-    return documents.stream().map(d -> toResponseWithoutCollaborators(d, ownerSummaries.get(d.getOwnerId()) != null ? ownerSummaries.get(d.getOwnerId()).username() : null)).toList();
+    List<DocumentResponse> items = documents.stream().map(d -> toResponseWithoutCollaborators(d, ownerSummaries.get(d.getOwnerId()) != null ? ownerSummaries.get(d.getOwnerId()).username() : null)).toList();
+    return new DocumentPageResponse(items, nextCursor);
   }
 
+  // Only the user-service call is forked; the row is read on the request thread, in its transaction.
   @Transactional(readOnly = true)
   public DocumentResponse getDocument(UUID userId, UUID documentId) {
-    Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
-    List<DocumentCollaborator> documentCollaborators = collaboratorRepository.findByDocumentId(documentId);
-    Set<UUID> collaboratorIds = documentCollaborators.stream().map(dc -> dc.getUserId()).collect(Collectors.toSet());
-    if (!DocumentAccessControl.hasAccess(userId, document.getOwnerId(), collaboratorIds)) {
+    DocumentAccess access = accessCache.get(documentId);
+    if (!access.allows(userId)) {
       throw new BadRequestException("Access denied");
     }
-    return toResponseWithCollaborators(document, documentCollaborators);
+    try (var scope = concurrentCalls.open()) {
+      var summaries = scope.fork(() -> fetchSummaries(access));
+      Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
+      scope.join();
+      return toResponseWithCollaborators(document, access, summaries.get());
+    }
   }
 
   @Transactional
@@ -75,19 +138,23 @@ public class DocumentService {
       throw new BadRequestException("Only the owner can delete the document");
     }
     documentRepository.delete(document);
+    accessCache.invalidate(documentId);
   }
 
   @Transactional
   public DocumentResponse updateDocument(UUID userId, UUID documentId, UpdateDocumentRequest request) {
-    Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
-    Set<UUID> collaboratorIds = collaboratorRepository.findByDocumentId(documentId).stream().map(dc -> dc.getUserId()).collect(Collectors.toSet());
-    if (!DocumentAccessControl.hasAccess(userId, document.getOwnerId(), collaboratorIds)) {
+    DocumentAccess access = accessCache.get(documentId);
+    if (!access.allows(userId)) {
       throw new BadRequestException("Access denied");
     }
-    document.setTitle(request.getTitle());
-    documentRepository.save(document);
-    List<DocumentCollaborator> documentCollaborators = collaboratorRepository.findByDocumentId(documentId);
-    return toResponseWithCollaborators(document, documentCollaborators);
+    try (var scope = concurrentCalls.open()) {
+      var summaries = scope.fork(() -> fetchSummaries(access));
+      Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
+      documentRepository.updateTitle(documentId, request.getTitle());
+      document.setTitle(request.getTitle());
+      scope.join();
+      return toResponseWithCollaborators(document, access, summaries.get());
+    }
   }
 
   @Transactional
@@ -103,6 +170,8 @@ public class DocumentService {
     }
     DocumentCollaborator documentCollaborator = new DocumentCollaborator(document, coll.id());
     collaboratorRepository.save(documentCollaborator);
+    accessRepository.grant(coll.id(), documentId, DocumentRole.COLLABORATOR.name(), Instant.now());
+    accessCache.invalidate(documentId);
     notificationService.createNotification(coll.id(), NotificationType.COLLABORATOR_ADDED, documentId, userId);
     collaborationServiceClient.broadcastDocumentUpdate(List.of(coll.id()), documentId);
   }
@@ -120,66 +189,132 @@ public class DocumentService {
     notificationService.createNotification(collaboratorUserId, NotificationType.COLLABORATOR_REMOVED, documentId, userId);
     collaborationServiceClient.broadcastDocumentUpdate(List.of(collaboratorUserId), documentId);
     collaboratorRepository.deleteByDocumentIdAndUserId(documentId, collaboratorUserId);
+    accessRepository.revoke(collaboratorUserId, documentId);
+    accessCache.invalidate(documentId);
   }
 
   @Transactional(readOnly = true)
   public List<UserSearchResponse> searchAvailableCollaborators(UUID userId, UUID documentId, String query) {
     if (query == null || query.trim().isEmpty()) return List.of();
-    Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
-    Set<UUID> collaboratorIds = collaboratorRepository.findByDocumentId(documentId).stream().map(dc -> dc.getUserId()).collect(Collectors.toSet());
-    if (!DocumentAccessControl.hasAccess(userId, document.getOwnerId(), collaboratorIds)) {
+    DocumentAccess access = accessCache.get(documentId);
+    if (!access.allows(userId)) {
       throw new BadRequestException("Access denied");
     }
-    var results = userClient.search(query.trim());
-    UUID ownerId = document.getOwnerId();
-    return results.stream()
-        .filter(r -> !r.id().equals(ownerId) && !collaboratorIds.contains(r.id()))
-        .limit(10)
+    Set<UUID> excludeIds = new java.util.HashSet<>(access.collaboratorIds());
+    excludeIds.add(access.ownerId());
+    return userClient.search(query.trim(), excludeIds, 10).stream()
         .map(r -> new UserSearchResponse(r.id(), r.username(), r.fullName(), r.profilePicture()))
         .toList();
   }
 
-  @Transactional(readOnly = true)
   public boolean validateDocumentAccess(UUID userId, UUID documentId) {
-    Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
-    Set<UUID> collaboratorIds = collaboratorRepository.findByDocumentId(documentId).stream().map(dc -> dc.getUserId()).collect(Collectors.toSet());
-    return DocumentAccessControl.hasAccess(userId, document.getOwnerId(), collaboratorIds);
+    return accessCache.get(documentId).allows(userId);
   }
 
-  @Transactional
-  public void saveDocumentContent(UUID userId, UUID documentId, byte[] state) {
-    Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
-    Set<UUID> collaboratorIds = collaboratorRepository.findByDocumentId(documentId).stream().map(dc -> dc.getUserId()).collect(Collectors.toSet());
-    if (!DocumentAccessControl.hasAccess(userId, document.getOwnerId(), collaboratorIds)) {
+  // declaredLength is the request's Content-Length, or -1 when the upload is chunked.
+  public void saveDocumentContent(UUID userId, UUID documentId, InputStream state, long declaredLength) {
+    if (!accessCache.get(documentId).allows(userId)) {
       throw new BadRequestException("Access denied");
     }
-    DocumentContent content = contentRepository.findByDocumentId(documentId).orElseGet(() -> new DocumentContent(document));
-    content.setState(state);
-    contentRepository.save(content);
+    compressor.checkUploadSize(declaredLength);
+    try (EncodedContent encoded = compressor.encode(state)) {
+      contentBuffer.save(documentId, encoded);
+      // Write-through: the state just saved is the one the next reload will ask for.
+      contentCache.invalidate(documentId);
+      if (contentCache.accepts(encoded.rawLength())) {
+        try (InputStream stored = encoded.openStored()) {
+          contentCache.put(documentId, encoded.contentHash(), compressor.asResource(stored.readAllBytes()));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Instant now = Instant.now();
+    accessRepository.touch(userId, documentId, now, now.minus(ACTIVITY_RESOLUTION));
+  }
+
+  // Hash and timestamp only, so conditional requests are answered without reading the state.
+  public DocumentContentResponse getDocumentContentHeader(UUID userId, UUID documentId) {
+    if (!accessCache.get(documentId).allows(userId)) {
+      throw new BadRequestException("Access denied");
+    }
+    return readContentHeader(documentId);
   }
 
-  @Transactional(readOnly = true)
   public DocumentContentResponse getDocumentContent(UUID userId, UUID documentId) {
-    Document document = documentRepository.findById(documentId).orElseThrow(() -> new NotFoundException("Document not found"));
-    Set<UUID> collaboratorIds = collaboratorRepository.findByDocumentId(documentId).stream().map(dc -> dc.getUserId()).collect(Collectors.toSet());
-    if (!DocumentAccessControl.hasAccess(userId, document.getOwnerId(), collaboratorIds)) {
+    if (!accessCache.get(documentId).allows(userId)) {
       throw new BadRequestException("Access denied");
     }
-    DocumentContent content = contentRepository.findByDocumentId(documentId).orElse(null);
-    if (content == null) return new DocumentContentResponse(documentId, new byte[0], null);
-    return new DocumentContentResponse(documentId, content.getState(), content.getUpdatedAt());
+    for (int attempt = 0; attempt < CONTENT_READ_ATTEMPTS; attempt++) {
+      var buffered = contentBuffer.find(documentId).orElse(null);
+      if (buffered != null) return fromBuffer(buffered, true);
+      DocumentContentResponse header = readContentHeader(documentId);
+      if (header.getContentHash() == null) return header;
+      var cached = contentCache.find(documentId, header.getContentHash()).orElse(null);
+      if (cached != null) {
+        return new DocumentContentResponse(documentId, header.getContentHash(), header.getUpdatedAt(), cached);
+      }
+      byte[] stored = contentRepository.findStoredStateByDocumentIdAndHash(documentId, header.getContentHash());
+      if (stored != null) {
+        return new DocumentContentResponse(documentId, header.getContentHash(), header.getUpdatedAt(),
+            contentCache.put(documentId, header.getContentHash(), compressor.asResource(stored)));
+      }
+    }
+    // Saved over on every attempt; fall back to one decoded read and hash what was read.
+    var snapshot = contentRepository.findSnapshotByDocumentId(documentId).orElse(null);
+    if (snapshot != null) checkFolded(documentId, snapshot.getBaseSeq(), snapshot.getHeadSeq());
+    if (snapshot == null || snapshot.getState() == null || snapshot.getState().length == 0) {
+      return emptyContent(documentId, snapshot != null ? snapshot.getUpdatedAt() : null);
+    }
+    return new DocumentContentResponse(documentId, ContentHash.of(snapshot.getState()), snapshot.getUpdatedAt(),
+        new ByteArrayResource(snapshot.getState()));
+  }
+
+  private DocumentContentResponse readContentHeader(UUID documentId) {
+    var buffered = contentBuffer.find(documentId).orElse(null);
+    if (buffered != null) return fromBuffer(buffered, false);
+    var header = contentRepository.findHeaderByDocumentId(documentId).orElse(null);
+    if (header == null) return emptyContent(documentId, null);
+    checkFolded(documentId, header.getBaseSeq(), header.getHeadSeq());
+    if (header.getContentHash() == null) return emptyContent(documentId, header.getUpdatedAt());
+    return new DocumentContentResponse(documentId, header.getContentHash(), header.getUpdatedAt(), null);
+  }
+
+  // The base alone is not the document while updates past it are pending, and only the
+  // collaboration server can fold them. Ask for that in the background and have the caller retry
+  // rather than serve (and ETag) a stale state.
+  private void checkFolded(UUID documentId, long baseSeq, long headSeq) {
+    if (headSeq <= baseSeq) return;
+    updateCompactor.requestSoon(documentId);
+    throw new ContentUnavailableException(
+        "Document has updates that are not folded into its content yet; read /updates or retry", UNFOLDED_RETRY_AFTER);
+  }
+
+  // Another replica may have appended past the seq the buffered state was saved at.
+  private DocumentContentResponse fromBuffer(PendingContent buffered, boolean withContent) {
+    contentRepository.findHeaderByDocumentId(buffered.documentId())
+        .ifPresent(header -> checkFolded(buffered.documentId(), buffered.throughSeq(), header.getHeadSeq()));
+    if (buffered.contentHash() == null) return emptyContent(buffered.documentId(), buffered.receivedAt());
+    return new DocumentContentResponse(buffered.documentId(), buffered.contentHash(), buffered.receivedAt(),
+        withContent ? compressor.asResource(buffered.stored()) : null);
+  }
+
+  private static DocumentContentResponse emptyContent(UUID documentId, LocalDateTime updatedAt) {
+    return new DocumentContentResponse(documentId, null, updatedAt, new ByteArrayResource(new byte[0]));
   }
 
   private DocumentResponse toResponseWithoutCollaborators(Document document, String ownerUsername) {
     return new DocumentResponse(document.getId(), document.getTitle(), ownerUsername, Collections.emptyList(), document.getCreatedAt(), document.getUpdatedAt());
   }
 
-  private DocumentResponse toResponseWithCollaborators(Document document, List<DocumentCollaborator> documentCollaborators) {
-    List<UUID> collaboratorIds = documentCollaborators.stream().map(DocumentCollaborator::getUserId).toList();
-    Set<UUID> fetchIds = new java.util.HashSet<>(collaboratorIds);
-    fetchIds.add(document.getOwnerId());
-    var summaries = userClient.getSummaries(fetchIds);
-    List<CollaboratorResponse> collaborators = collaboratorIds.stream().map(id -> {
+  private Map<UUID, UserSummary> fetchSummaries(DocumentAccess access) {
+    Set<UUID> fetchIds = new java.util.HashSet<>(access.collaboratorIds());
+    fetchIds.add(access.ownerId());
+    return userClient.getSummaries(fetchIds);
+  }
+
+  private DocumentResponse toResponseWithCollaborators(Document document, DocumentAccess access, Map<UUID, UserSummary> summaries) {
+    List<CollaboratorResponse> collaborators = access.collaboratorIds().stream().map(id -> {
       var s = summaries.get(id);
       return new CollaboratorResponse(id, s != null ? s.username() : null, s != null ? s.fullName() : null, s != null ? s.profilePicture() : null);
     }).toList();
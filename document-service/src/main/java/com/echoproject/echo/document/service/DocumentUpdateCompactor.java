@@ -0,0 +1,96 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.exception.NotFoundException;
+import com.echoproject.echo.document.repository.DocumentUpdateRepository;
+import com.echoproject.echo.notification.client.CollaborationServiceClient;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+// Finds update logs past the count or size threshold and asks the collaboration server, which
+// holds the live Y.Doc, to write back a compacted base snapshot.
+@Component
+@Slf4j
+public class DocumentUpdateCompactor implements DisposableBean {
+
+  private final DocumentUpdateRepository updateRepository;
+  private final CollaborationServiceClient collaborationServiceClient;
+  private final DocumentAccessCache accessCache;
+  private final long maxUpdates;
+  private final long maxBytes;
+  private final int batchSize;
+  private final ThreadPoolTaskExecutor requestExecutor;
+  private final Set<UUID> requested = ConcurrentHashMap.newKeySet();
+
+  public DocumentUpdateCompactor(
+      DocumentUpdateRepository updateRepository,
+      CollaborationServiceClient collaborationServiceClient,
+      DocumentAccessCache accessCache,
+      @Value("${document.update-log.compact-after-updates:200}") long maxUpdates,
+      @Value("${document.update-log.compact-after-bytes:1048576}") long maxBytes,
+      @Value("${document.update-log.compactor-batch-size:50}") int batchSize,
+      @Value("${document.update-log.compact-request-queue-capacity:100}") int requestQueueCapacity) {
+    this.updateRepository = updateRepository;
+    this.collaborationServiceClient = collaborationServiceClient;
+    this.accessCache = accessCache;
+    this.maxUpdates = maxUpdates;
+    this.maxBytes = maxBytes;
+    this.batchSize = batchSize;
+    this.requestExecutor = new ThreadPoolTaskExecutor();
+    requestExecutor.setCorePoolSize(1);
+    requestExecutor.setMaxPoolSize(1);
+    requestExecutor.setQueueCapacity(requestQueueCapacity);
+    requestExecutor.setThreadNamePrefix("update-log-compact-");
+    requestExecutor.initialize();
+  }
+
+  // Fire-and-forget, for readers that found unfolded updates. Requests for a document already
+  // queued are coalesced, and requests beyond the queue are dropped; the reader retries anyway.
+  public void requestSoon(UUID documentId) {
+    if (!requested.add(documentId)) return;
+    try {
+      requestExecutor.execute(() -> {
+        try {
+          requestCompaction(documentId);
+        } finally {
+          requested.remove(documentId);
+        }
+      });
+    } catch (TaskRejectedException e) {
+      requested.remove(documentId);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${document.update-log.compactor-interval:PT1M}")
+  public void compactOversizedLogs() {
+    List<UUID> candidates = updateRepository.findCompactionCandidates(maxUpdates, maxBytes, batchSize);
+    int compacted = 0;
+    for (UUID documentId : candidates) {
+      if (requestCompaction(documentId)) compacted++;
+    }
+    if (!candidates.isEmpty()) log.info("Update log compaction: {} of {} documents compacted", compacted, candidates.size());
+  }
+
+  private boolean requestCompaction(UUID documentId) {
+    UUID ownerId;
+    try {
+      ownerId = accessCache.get(documentId).ownerId();
+    } catch (NotFoundException e) {
+      return false;
+    }
+    return collaborationServiceClient.requestCompaction(documentId, ownerId);
+  }
+
+  @Override
+  public void destroy() {
+    requestExecutor.shutdown();
+  }
+}
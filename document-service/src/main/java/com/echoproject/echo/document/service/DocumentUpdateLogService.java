@@ -0,0 +1,114 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.common.compression.EncodedContent;
+import com.echoproject.echo.common.exception.BadRequestException;
+import com.echoproject.echo.document.dto.DocumentUpdateResponse;
+import com.echoproject.echo.document.dto.DocumentUpdatesResponse;
+import com.echoproject.echo.document.repository.DocumentContentRepository;
+import com.echoproject.echo.document.repository.DocumentContentWriter;
+import com.echoproject.echo.document.repository.DocumentUpdateRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Incremental content mode: clients append small Yjs updates instead of re-posting the full
+// state. Folding the log back into the base snapshot needs Yjs, so the collaboration server
+// produces the merged state and hands it back through compact().
+@Service
+@RequiredArgsConstructor
+public class DocumentUpdateLogService {
+
+  private final DocumentAccessCache accessCache;
+  private final DocumentContentRepository contentRepository;
+  private final DocumentUpdateRepository updateRepository;
+  private final ContentCompressor compressor;
+  private final DocumentContentBuffer contentBuffer;
+  private final DocumentContentCache contentCache;
+  private final DocumentContentWriter contentWriter;
+  private final TransactionTemplate transactionTemplate;
+
+  @Transactional
+  public long appendUpdate(UUID userId, UUID documentId, byte[] update) {
+    checkAccess(userId, documentId);
+    if (update == null || update.length == 0) throw new BadRequestException("Update is empty");
+    contentBuffer.flushDocument(documentId);
+    long seq = contentRepository.nextSeq(documentId, update.length);
+    updateRepository.append(documentId, seq, update);
+    return seq;
+  }
+
+  // Repeatable read so a compaction landing mid-read cannot drop updates between base and log.
+  @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+  public DocumentUpdatesResponse getUpdates(UUID userId, UUID documentId, Long sinceSeq) {
+    checkAccess(userId, documentId);
+    // A buffered overwrite is the state through the seq captured with it; anything appended after
+    // that (e.g. on another replica) is still in the log.
+    var buffered = contentBuffer.find(documentId).orElse(null);
+    if (buffered != null) {
+      long headSeq = contentRepository.findHeaderByDocumentId(documentId).map(h -> h.getHeadSeq()).orElse(0L);
+      List<DocumentUpdateResponse> updates = updateRepository.findAfter(documentId, buffered.throughSeq()).stream()
+          .map(u -> new DocumentUpdateResponse(u.getSeq(), u.getPayload()))
+          .toList();
+      return new DocumentUpdatesResponse(documentId, buffered.throughSeq(), Math.max(headSeq, buffered.throughSeq()),
+          compressor.decode(buffered.stored()), updates);
+    }
+    var header = contentRepository.findHeaderByDocumentId(documentId).orElse(null);
+    if (header == null) return new DocumentUpdatesResponse(documentId, 0, 0, null, List.of());
+    boolean fromBase = sinceSeq == null || sinceSeq < header.getBaseSeq();
+    long after = fromBase ? header.getBaseSeq() : sinceSeq;
+    List<DocumentUpdateResponse> updates = updateRepository.findAfter(documentId, after).stream()
+        .map(u -> new DocumentUpdateResponse(u.getSeq(), u.getPayload()))
+        .toList();
+    return new DocumentUpdatesResponse(documentId, header.getBaseSeq(), header.getHeadSeq(),
+        fromBase ? readBase(documentId, header.getContentHash()) : null, updates);
+  }
+
+  // state must already contain every update up to and including throughSeq. It is streamed into
+  // a spool like a /content upload, before the transaction, so no connection waits on the client.
+  public boolean compact(UUID userId, UUID documentId, InputStream state, long declaredLength, long throughSeq) {
+    checkAccess(userId, documentId);
+    compressor.checkUploadSize(declaredLength);
+    try (EncodedContent encoded = compressor.encode(state)) {
+      if (encoded.rawLength() == 0) throw new BadRequestException("Snapshot is empty");
+      return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+        contentBuffer.flushDocument(documentId);
+        if (contentWriter.replaceBase(documentId, encoded, throughSeq) == 0) return false;
+        updateRepository.deleteThrough(documentId, throughSeq);
+        contentCache.invalidate(documentId);
+        return true;
+      }));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  // Reloads after a collaboration node restart all start from the base, so it is served from
+  // the content cache when the header's hash is there.
+  private byte[] readBase(UUID documentId, String contentHash) {
+    if (contentHash == null) return null;
+    Resource base = contentCache.find(documentId, contentHash).orElse(null);
+    if (base == null) {
+      byte[] stored = contentRepository.findStoredStateByDocumentIdAndHash(documentId, contentHash);
+      if (stored == null) return null;
+      base = contentCache.put(documentId, contentHash, compressor.asResource(stored));
+    }
+    try {
+      return base.getContentAsByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void checkAccess(UUID userId, UUID documentId) {
+    if (!accessCache.get(documentId).allows(userId)) throw new BadRequestException("Access denied");
+  }
+}
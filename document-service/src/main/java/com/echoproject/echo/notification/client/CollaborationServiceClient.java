@@ -2,10 +2,12 @@ package com.echoproject.echo.notification.client;
 
 import com.echoproject.echo.notification.dto.NotificationBroadcastRequest;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
@@ -19,6 +21,10 @@ public class CollaborationServiceClient {
   @Value("${collaboration.service.url}")
   private String collaborationServiceUrl;
 
+  // Compaction is not routed through the gateway, so it is only reachable from inside the network.
+  @Value("${collaboration.service.internal-url}")
+  private String collaborationServiceInternalUrl;
+
   public void broadcastDocumentUpdate(List<UUID> userIds, UUID documentId) {
     try {
       NotificationBroadcastRequest request = new NotificationBroadcastRequest(userIds, documentId);
@@ -28,5 +34,19 @@ public class CollaborationServiceClient {
       log.error("[DOCUMENT-SERVICE] Failed to broadcast document update: {}", e.getMessage());
     }
   }
+
+  // Asks the collaboration server to fold the document's update log into a new base snapshot. It
+  // acts as ownerId, so this works without any user session there. Returns false when there was
+  // nothing to fold or the request fails.
+  public boolean requestCompaction(UUID documentId, UUID ownerId) {
+    try {
+      String url = collaborationServiceInternalUrl + "/compact-document/" + documentId + "?ownerId=" + ownerId;
+      ResponseEntity<Map> res = restTemplate.postForEntity(url, null, Map.class);
+      return res.getBody() != null && Boolean.TRUE.equals(res.getBody().get("compacted"));
+    } catch (Exception e) {
+      log.warn("[DOCUMENT-SERVICE] Failed to request compaction for {}: {}", documentId, e.getMessage());
+      return false;
+    }
+  }
 }
 
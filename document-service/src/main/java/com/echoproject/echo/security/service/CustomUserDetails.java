@@ -8,6 +8,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 @Getter
 public class CustomUserDetails implements UserDetails {
+  // Identity signed by other services for background calls; no gateway-resolved user has it.
+  public static final UUID SERVICE_ACCOUNT_ID = new UUID(0L, 0L);
   private final UUID id; private final String username; private final String password; private final Collection<? extends GrantedAuthority> authorities;
   public CustomUserDetails(UUID id, String username, String password, Collection<? extends GrantedAuthority> authorities) { this.id=id; this.username=username; this.password=password; this.authorities=authorities; }
   @Override public Collection<? extends GrantedAuthority> getAuthorities(){return authorities;}
@@ -17,5 +19,6 @@ public class CustomUserDetails implements UserDetails {
   @Override public boolean isAccountNonLocked(){return true;}
   @Override public boolean isCredentialsNonExpired(){return true;}
   @Override public boolean isEnabled(){return true;}
+  public boolean isServiceAccount(){return SERVICE_ACCOUNT_ID.equals(id);}
 }
 
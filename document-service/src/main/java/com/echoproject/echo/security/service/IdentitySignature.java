@@ -0,0 +1,80 @@
+package com.echoproject.echo.security.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+// Identity headers signed with the shared identity secret: by the gateway for the user it
+// authenticated, by services for their own background calls. The signature covers when it was
+// issued and the request line it was issued for, so captured headers are only good for that
+// method and path, and only for max-age. Each service builds on its own and carries a copy; the
+// payload must stay byte-for-byte the same as the gateway's.
+@Component
+public class IdentitySignature {
+  public static final String USER_ID_HEADER = "X-User-Id";
+  public static final String USERNAME_HEADER = "X-Username";
+  public static final String ISSUED_AT_HEADER = "X-User-Issued-At";
+  public static final String SIGNATURE_HEADER = "X-User-Signature";
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final SecretKeySpec key;
+  private final long maxAgeSeconds;
+  private final Clock clock;
+
+  @Autowired
+  public IdentitySignature(
+      @Value("${identity.secret}") String secret,
+      @Value("${identity.max-age:PT2M}") Duration maxAge) {
+    this(secret, maxAge, Clock.systemUTC());
+  }
+
+  IdentitySignature(String secret, Duration maxAge, Clock clock) {
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    this.maxAgeSeconds = maxAge.toSeconds();
+    this.clock = clock;
+  }
+
+  // path is the raw request path without the query string, as the receiver's getRequestURI() sees it.
+  public void apply(HttpHeaders headers, UUID userId, String username, String method, String path) {
+    String issuedAt = Long.toString(clock.instant().getEpochSecond());
+    headers.set(USER_ID_HEADER, userId.toString());
+    headers.set(USERNAME_HEADER, username);
+    headers.set(ISSUED_AT_HEADER, issuedAt);
+    headers.set(SIGNATURE_HEADER, Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(mac(userId.toString(), username, issuedAt, method, path)));
+  }
+
+  public boolean isValid(String userId, String username, String issuedAt, String signature, String method, String path) {
+    if (userId == null || username == null || issuedAt == null || signature == null) return false;
+    try {
+      long age = clock.instant().getEpochSecond() - Long.parseLong(issuedAt);
+      if (Math.abs(age) > maxAgeSeconds) return false;
+      return MessageDigest.isEqual(
+          mac(userId, username, issuedAt, method, path), Base64.getUrlDecoder().decode(signature));
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private byte[] mac(String userId, String username, String issuedAt, String method, String path) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      String payload = String.join("\n", userId, username, issuedAt, method, path);
+      return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
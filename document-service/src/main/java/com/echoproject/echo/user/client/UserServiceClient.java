@@ -1,21 +1,32 @@
 package com.echoproject.echo.user.client;
 
+import java.time.Duration;
 import java.util.*;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 @Component
-@RequiredArgsConstructor
 public class UserServiceClient {
 
   private final RestTemplate restTemplate;
+  private final UserSummaryCache summaryCache;
+  private final UserSummaryBatcher summaryBatcher;
 
   @Value("${user.service.url:http://gateway:8080}")
   private String userServiceBaseUrl;
 
+  public UserServiceClient(
+      RestTemplate restTemplate,
+      UserSummaryCache summaryCache,
+      @Value("${user.summaries.batch.window:PT0.002S}") Duration batchWindow,
+      @Value("${user.summaries.batch.max-size:200}") int maxBatchSize) {
+    this.restTemplate = restTemplate;
+    this.summaryCache = summaryCache;
+    this.summaryBatcher = new UserSummaryBatcher(this::fetchSummaries, batchWindow, maxBatchSize);
+  }
+
   public Optional<UserSummary> getByUsername(String username) {
     try {
       String url = userServiceBaseUrl + "/api/internal/users/by-username/" + username;
@@ -32,12 +43,14 @@ public class UserServiceClient {
     return Optional.empty();
   }
 
-  public List<UserSearchItem> search(String query) {
+  public List<UserSearchItem> search(String query, Collection<UUID> excludeIds, int limit) {
     try {
-      String url = userServiceBaseUrl + "/api/internal/users/search?query=" + encode(query);
+      String url = userServiceBaseUrl + "/api/internal/users/search";
       HttpHeaders headers = authHeaders();
-      HttpEntity<Void> entity = new HttpEntity<>(headers);
-      ResponseEntity<List> res = restTemplate.exchange(url, HttpMethod.GET, entity, List.class);
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      Map<String, Object> body = Map.of("query", query, "excludeIds", excludeIds, "limit", limit);
+      HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
+      ResponseEntity<List> res = restTemplate.exchange(url, HttpMethod.POST, entity, List.class);
       List list = res.getBody();
       if (list == null) return List.of();
       List<UserSearchItem> out = new ArrayList<>();
@@ -56,67 +69,54 @@ public class UserServiceClient {
   }
 
   public Map<UUID, String> getUsernames(Collection<UUID> ids) {
-    if (ids == null || ids.isEmpty()) return Map.of();
-    try {
-      String url = userServiceBaseUrl + "/api/internal/users/summaries";
-      HttpHeaders headers = authHeaders();
-      headers.setContentType(MediaType.APPLICATION_JSON);
-      HttpEntity<Collection<UUID>> entity = new HttpEntity<>(ids, headers);
-      ResponseEntity<List> res = restTemplate.exchange(url, HttpMethod.POST, entity, List.class);
-      List list = res.getBody();
-      if (list == null) return Map.of();
-      Map<UUID, String> map = new HashMap<>();
-      for (Object o : list) {
-        Map m = (Map) o;
-        UUID id = UUID.fromString(String.valueOf(m.get("id")));
-        String uname = String.valueOf(m.get("username"));
-        map.put(id, uname);
-      }
-      return map;
-    } catch (Exception e) {
-      return Map.of();
-    }
+    Map<UUID, String> map = new HashMap<>();
+    getSummaries(ids).forEach((id, summary) -> map.put(id, summary.username()));
+    return map;
   }
 
   public Map<UUID, UserSummary> getSummaries(Collection<UUID> ids) {
     if (ids == null || ids.isEmpty()) return Map.of();
-    try {
-      String url = userServiceBaseUrl + "/api/internal/users/summaries";
-      HttpHeaders headers = authHeaders();
-      headers.setContentType(MediaType.APPLICATION_JSON);
-      HttpEntity<Collection<UUID>> entity = new HttpEntity<>(ids, headers);
-      ResponseEntity<List> res = restTemplate.exchange(url, HttpMethod.POST, entity, List.class);
-      List list = res.getBody();
-      if (list == null) return Map.of();
-      Map<UUID, UserSummary> map = new HashMap<>();
-      for (Object o : list) {
-        Map m = (Map) o;
-        UUID id = UUID.fromString(String.valueOf(m.get("id")));
-        String uname = String.valueOf(m.get("username"));
-        String full = m.get("fullName") != null ? String.valueOf(m.get("fullName")) : null;
-        String pic = m.get("profilePicture") != null ? String.valueOf(m.get("profilePicture")) : null;
-        map.put(id, new UserSummary(id, uname, full, pic));
-      }
-      return map;
-    } catch (Exception e) {
-      return Map.of();
-    }
+    // Captured here so background refreshes can authenticate off the request thread
+    String authorization = currentAuthorization();
+    return summaryCache.getAll(ids, missing -> summaryBatcher.load(missing, authorization));
   }
 
-  private String encode(String s) {
-    try { return java.net.URLEncoder.encode(s, java.nio.charset.StandardCharsets.UTF_8); } catch (Exception e) { return s; }
+  private Map<UUID, UserSummary> fetchSummaries(Collection<UUID> ids, String authorization) {
+    String url = userServiceBaseUrl + "/api/internal/users/summaries";
+    HttpHeaders headers = new HttpHeaders();
+    if (authorization != null) headers.set("Authorization", authorization);
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    HttpEntity<Collection<UUID>> entity = new HttpEntity<>(ids, headers);
+    ResponseEntity<List> res = restTemplate.exchange(url, HttpMethod.POST, entity, List.class);
+    List list = res.getBody();
+    if (list == null) return Map.of();
+    Map<UUID, UserSummary> map = new HashMap<>();
+    for (Object o : list) {
+      Map m = (Map) o;
+      UUID id = UUID.fromString(String.valueOf(m.get("id")));
+      String uname = String.valueOf(m.get("username"));
+      String full = m.get("fullName") != null ? String.valueOf(m.get("fullName")) : null;
+      String pic = m.get("profilePicture") != null ? String.valueOf(m.get("profilePicture")) : null;
+      map.put(id, new UserSummary(id, uname, full, pic));
+    }
+    return map;
   }
 
   private HttpHeaders authHeaders() {
     HttpHeaders headers = new HttpHeaders();
+    String auth = currentAuthorization();
+    if (auth != null) headers.set("Authorization", auth);
+    return headers;
+  }
+
+  private String currentAuthorization() {
     try {
       var attrs = org.springframework.web.context.request.RequestContextHolder.getRequestAttributes();
       if (attrs instanceof org.springframework.web.context.request.ServletRequestAttributes sra) {
-        String auth = sra.getRequest().getHeader("Authorization");
-        if (auth != null) headers.set("Authorization", auth);
+        return sra.getRequest().getHeader("Authorization");
       }
     } catch (Exception ignored) {}
-    return headers;
+    return null;
   }
 
   public record UserSummary(UUID id, String username, String fullName, String profilePicture) {}
@@ -0,0 +1,59 @@
+package com.echoproject.echo.common.compression;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Manual benchmark over exported Yjs states, one raw state per *.bin file, e.g.
+//   psql docdb -Atc "SELECT document_id, encode(substring(state FROM 2), 'hex') FROM document_content
+//     WHERE get_byte(state, 0) = 0" | while IFS='|' read id hex; do echo "$hex" | xxd -r -p > "$id.bin"; done
+//   mvn test -Dtest=ContentCodecBenchmark -Dcodec.benchmark.dir=/path/to/states
+@EnabledIfSystemProperty(named = "codec.benchmark.dir", matches = ".+")
+class ContentCodecBenchmark {
+
+  private static final int ROUNDS = 20;
+
+  @Test
+  void compareCodecs() throws IOException {
+    List<byte[]> payloads = load(Path.of(System.getProperty("codec.benchmark.dir")));
+    long rawBytes = payloads.stream().mapToLong(p -> p.length).sum();
+    System.out.printf("%d payloads, %d raw bytes%n", payloads.size(), rawBytes);
+    System.out.printf("%-8s %8s %14s %14s%n", "codec", "ratio", "encode MB/s", "decode MB/s");
+
+    for (ContentCodec codec : ContentCodec.values()) {
+      long storedBytes = 0;
+      long encodeNanos = 0;
+      long decodeNanos = 0;
+      for (int round = 0; round < ROUNDS; round++) {
+        for (byte[] raw : payloads) {
+          long start = System.nanoTime();
+          byte[] body = codec.compress(raw);
+          long encoded = System.nanoTime();
+          codec.decompress(body, 0, raw.length);
+          decodeNanos += System.nanoTime() - encoded;
+          encodeNanos += encoded - start;
+          if (round == 0) storedBytes += body.length;
+        }
+      }
+      double megabytes = (double) rawBytes * ROUNDS / (1 << 20);
+      System.out.printf("%-8s %8.2f %14.1f %14.1f%n", codec, (double) rawBytes / storedBytes,
+          megabytes / (encodeNanos / 1e9), megabytes / (decodeNanos / 1e9));
+    }
+  }
+
+  private static List<byte[]> load(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(f -> f.toString().endsWith(".bin")).sorted().map(f -> {
+        try {
+          return Files.readAllBytes(f);
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }).toList();
+    }
+  }
+}
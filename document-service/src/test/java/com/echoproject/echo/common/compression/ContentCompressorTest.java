@@ -0,0 +1,133 @@
+package com.echoproject.echo.common.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.echoproject.echo.common.exception.ContentTooLargeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+class ContentCompressorTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  @ParameterizedTest
+  @EnumSource(ContentCodec.class)
+  void roundTripsThroughEveryCodec(ContentCodec codec) {
+    ContentCompressor compressor = compressor(codec.name(), 16);
+    byte[] raw = repetitive(64 * 1024);
+
+    byte[] stored = compressor.encode(raw);
+
+    assertThat(compressor.codecOf(stored)).isEqualTo(codec);
+    assertThat(compressor.decode(stored)).isEqualTo(raw);
+    if (codec != ContentCodec.NONE) assertThat(stored.length).isLessThan(raw.length / 4);
+  }
+
+  @Test
+  void readsRowsWrittenWithAnotherCodec() {
+    byte[] raw = repetitive(8 * 1024);
+    byte[] stored = compressor("lz4", 16).encode(raw);
+
+    assertThat(compressor("deflate", 16).decode(stored)).isEqualTo(raw);
+  }
+
+  @Test
+  void keepsSmallAndIncompressiblePayloadsUncompressed() {
+    ContentCompressor compressor = compressor("zstd", 256);
+    byte[] small = "tiny".getBytes(StandardCharsets.UTF_8);
+    byte[] noise = new byte[4096];
+    new Random(7).nextBytes(noise);
+
+    assertThat(compressor.codecOf(compressor.encode(small))).isEqualTo(ContentCodec.NONE);
+    assertThat(compressor.codecOf(compressor.encode(noise))).isEqualTo(ContentCodec.NONE);
+    assertThat(compressor.decode(compressor.encode(noise))).isEqualTo(noise);
+  }
+
+  @Test
+  void recordsCompressionRatio() {
+    ContentCompressor compressor = compressor("zstd", 16);
+    compressor.encode(repetitive(16 * 1024));
+
+    assertThat(registry.get("content.compression.ratio").tag("codec", "zstd").summary().mean())
+        .isGreaterThan(4.0);
+    assertThat(registry.get("content.codec").tag("codec", "zstd").tag("op", "encode").timer().count())
+        .isEqualTo(1);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ContentCodec.class)
+  void exposesStoredContentAsReReadableResource(ContentCodec codec) throws IOException {
+    ContentCompressor compressor = compressor(codec.name(), 16);
+    byte[] raw = repetitive(32 * 1024);
+    Resource resource = compressor.asResource(compressor.encode(raw));
+
+    assertThat(resource.contentLength()).isEqualTo(raw.length);
+    try (InputStream in = resource.getInputStream()) {
+      assertThat(in.readAllBytes()).isEqualTo(raw);
+    }
+    try (InputStream in = resource.getInputStream()) {
+      in.skipNBytes(1000);
+      assertThat(in.readNBytes(10)).isEqualTo(Arrays.copyOfRange(raw, 1000, 1010));
+    }
+  }
+
+  @Test
+  void rejectsUnknownHeaders() {
+    ContentCompressor compressor = compressor("zstd", 16);
+
+    assertThatThrownBy(() -> compressor.decode(new byte[] {42, 1, 2, 3}))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @ParameterizedTest
+  @EnumSource(ContentCodec.class)
+  void streamsUploadsIntoTheSameStoredFormat(ContentCodec codec) throws IOException {
+    ContentCompressor compressor = compressor(codec.name(), 16);
+    byte[] raw = repetitive(600 * 1024);
+
+    try (EncodedContent encoded = compressor.encode(new ByteArrayInputStream(raw))) {
+      byte[] stored = encoded.openStored().readAllBytes();
+
+      assertThat(stored).hasSize((int) encoded.storedLength());
+      assertThat(encoded.rawLength()).isEqualTo(raw.length);
+      assertThat(encoded.contentHash()).isEqualTo(ContentHash.of(raw));
+      assertThat(compressor.codecOf(stored)).isEqualTo(codec.streamCodec());
+      assertThat(compressor.decode(stored)).isEqualTo(raw);
+      if (codec != ContentCodec.NONE) assertThat(stored.length).isLessThan(raw.length / 4);
+    }
+  }
+
+  @Test
+  void rejectsUploadsOverTheLimitWhileStreaming() {
+    ContentCompressor compressor = new ContentCompressor(
+        registry, "zstd", 16, DataSize.ofKilobytes(64), DataSize.ofKilobytes(16));
+
+    assertThatThrownBy(() -> compressor.checkUploadSize(65 * 1024)).isInstanceOf(ContentTooLargeException.class);
+    assertThatThrownBy(() -> compressor.encode(new ByteArrayInputStream(repetitive(65 * 1024))))
+        .isInstanceOf(ContentTooLargeException.class);
+  }
+
+  private ContentCompressor compressor(String codec, int minSize) {
+    return new ContentCompressor(registry, codec, minSize, DataSize.ofMegabytes(50), DataSize.ofKilobytes(64));
+  }
+
+  private static byte[] repetitive(int size) {
+    StringBuilder text = new StringBuilder(size);
+    Random random = new Random(1);
+    while (text.length() < size) {
+      text.append("paragraph ").append(random.nextInt(50)).append(" of the shared document. ");
+    }
+    return text.substring(0, size).getBytes(StandardCharsets.UTF_8);
+  }
+}
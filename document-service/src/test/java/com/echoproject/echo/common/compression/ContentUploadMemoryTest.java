@@ -0,0 +1,121 @@
+package com.echoproject.echo.common.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class ContentUploadMemoryTest {
+
+  private static final int UPLOADS = 100;
+  private static final long UPLOAD_BYTES = DataSize.ofMegabytes(20).toBytes();
+
+  @Test
+  void heapStaysFlatUnderConcurrentLargeUploads() throws Exception {
+    ContentCompressor compressor = new ContentCompressor(
+        new SimpleMeterRegistry(), "zstd", 256, DataSize.ofMegabytes(50), DataSize.ofKilobytes(256));
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    memory.gc();
+    long baseline = memory.getHeapMemoryUsage().getUsed();
+
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicLong peak = new AtomicLong();
+    Thread sampler = new Thread(() -> {
+      while (running.get()) {
+        memory.gc();
+        peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed() - baseline, Math::max);
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    });
+
+    ExecutorService uploads = Executors.newFixedThreadPool(UPLOADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Long>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < UPLOADS; i++) {
+        long seed = i;
+        results.add(uploads.submit(() -> {
+          start.await();
+          try (EncodedContent encoded = compressor.encode(new TextStream(seed, UPLOAD_BYTES))) {
+            return encoded.rawLength();
+          }
+        }));
+      }
+      sampler.start();
+      start.countDown();
+      for (Future<Long> result : results) {
+        assertThat(result.get()).isEqualTo(UPLOAD_BYTES);
+      }
+    } finally {
+      running.set(false);
+      sampler.join();
+      uploads.shutdownNow();
+    }
+
+    // Buffering would retain UPLOADS * 20 MB = 2000 MB; streaming keeps buffers plus spool heads.
+    assertThat(peak.get()).isLessThan(DataSize.ofMegabytes(200).toBytes());
+  }
+
+  // Generates compressible text on the fly so the test itself never holds an upload in memory.
+  private static class TextStream extends InputStream {
+    private static final byte[][] WORDS = words();
+
+    private final SplittableRandom random;
+    private long remaining;
+    private byte[] word = new byte[0];
+    private int position;
+
+    TextStream(long seed, long length) {
+      this.random = new SplittableRandom(seed);
+      this.remaining = length;
+    }
+
+    @Override
+    public int read() {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (remaining == 0) return -1;
+      int n = (int) Math.min(len, remaining);
+      for (int i = 0; i < n; i++) {
+        if (position == word.length) {
+          word = WORDS[random.nextInt(WORDS.length)];
+          position = 0;
+        }
+        b[off + i] = word[position++];
+      }
+      remaining -= n;
+      return n;
+    }
+
+    private static byte[][] words() {
+      String[] parts = "the shared document keeps every edit merged across all open sessions".split(" ");
+      byte[][] words = new byte[parts.length * 10][];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = (parts[i % parts.length] + (i / parts.length) + " ").getBytes(StandardCharsets.US_ASCII);
+      }
+      return words;
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.echoproject.echo.document.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class DocumentCursorTest {
+
+  @Test
+  void roundTripsTitlesContainingSeparators() {
+    UUID id = UUID.randomUUID();
+    String encoded = DocumentCursor.after(DocumentSort.TITLE, "Q3 | plan", Instant.now(), id).encode();
+
+    assertThat(DocumentCursor.decode(encoded, DocumentSort.TITLE))
+        .isEqualTo(new DocumentCursor(DocumentSort.TITLE, "Q3 | plan", id));
+  }
+
+  @Test
+  void rejectsCursorsFromAnotherSortOrGarbage() {
+    String encoded = DocumentCursor.after(DocumentSort.UPDATED_AT, "t", Instant.parse("2024-01-01T00:00:00Z"), UUID.randomUUID()).encode();
+
+    assertThat(DocumentCursor.decode(encoded, DocumentSort.UPDATED_AT).updatedAt()).isEqualTo(Instant.parse("2024-01-01T00:00:00Z"));
+    assertThat(DocumentCursor.decode(encoded, DocumentSort.TITLE)).isNull();
+    assertThat(DocumentCursor.decode("not-a-cursor", DocumentSort.UPDATED_AT)).isNull();
+  }
+}
@@ -0,0 +1,78 @@
+package com.echoproject.echo.document.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.common.compression.EncodedContent;
+import com.echoproject.echo.document.domain.PendingContent;
+import com.echoproject.echo.document.repository.DocumentContentWriter;
+import com.echoproject.echo.document.repository.DocumentUpdateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+class DocumentContentBufferTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final ContentCompressor compressor = new ContentCompressor(
+      registry, "zstd", 16, DataSize.ofMegabytes(50), DataSize.ofKilobytes(64));
+  private final DocumentContentWriter writer = mock(DocumentContentWriter.class);
+  private final DocumentContentBuffer buffer = new DocumentContentBuffer(
+      writer, mock(DocumentUpdateRepository.class), mock(PlatformTransactionManager.class), registry,
+      true, DataSize.ofMegabytes(1), 100);
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void coalescesSavesAndFlushesOncePerDocument() throws IOException {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    save(first, "one");
+    save(first, "two");
+    save(second, "three");
+
+    assertThat(compressor.decode(buffer.find(first).orElseThrow().stored())).isEqualTo(bytes("two"));
+    verify(writer, never()).overwriteAll(any());
+
+    buffer.flushAll();
+
+    ArgumentCaptor<List<PendingContent>> batch = ArgumentCaptor.forClass(List.class);
+    verify(writer).overwriteAll(batch.capture());
+    assertThat(batch.getValue()).extracting(PendingContent::documentId).containsExactlyInAnyOrder(first, second);
+    assertThat(buffer.find(first)).isEmpty();
+    assertThat(registry.get("document.content.coalesced").counter().count()).isEqualTo(1);
+    assertThat(registry.get("document.content.flushed").counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  void keepsEntriesBufferedWhenTheFlushFails() throws IOException {
+    UUID documentId = UUID.randomUUID();
+    save(documentId, "pending");
+    doThrow(new IllegalStateException("db down")).when(writer).overwriteAll(any());
+
+    buffer.flushAll();
+
+    assertThat(compressor.decode(buffer.find(documentId).orElseThrow().stored())).isEqualTo(bytes("pending"));
+  }
+
+  private void save(UUID documentId, String text) throws IOException {
+    try (EncodedContent encoded = compressor.encode(new ByteArrayInputStream(bytes(text)))) {
+      buffer.save(documentId, encoded);
+    }
+  }
+
+  private static byte[] bytes(String text) {
+    return text.repeat(20).getBytes(StandardCharsets.UTF_8);
+  }
+}
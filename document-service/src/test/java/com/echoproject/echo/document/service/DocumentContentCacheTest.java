@@ -0,0 +1,72 @@
+package com.echoproject.echo.document.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+class DocumentContentCacheTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final DocumentContentCache cache = new DocumentContentCache(
+      registry, true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+
+  @Test
+  void servesCachedContentOnlyForTheSameHash() throws IOException {
+    UUID documentId = UUID.randomUUID();
+    byte[] state = "hello, cached world".getBytes(StandardCharsets.UTF_8);
+
+    Resource put = cache.put(documentId, "h1", new ByteArrayResource(state));
+
+    assertThat(put.getContentAsByteArray()).isEqualTo(state);
+    assertThat(cache.find(documentId, "h1")).hasValueSatisfying(r -> assertThat(bytes(r)).isEqualTo(state));
+    assertThat(cache.find(documentId, "h2")).isEmpty();
+    assertThat(registry.get("cache.gets").tag("cache", "document.content").tag("result", "hit").functionCounter().count())
+        .isEqualTo(1);
+
+    cache.put(documentId, "h2", new ByteArrayResource(new byte[] {1, 2, 3}));
+    assertThat(cache.find(documentId, "h1")).isEmpty();
+    assertThat(cache.find(documentId, "h2")).isPresent();
+  }
+
+  @Test
+  void concurrentReadersDoNotShareAPosition() throws IOException {
+    UUID documentId = UUID.randomUUID();
+    byte[] state = "0123456789".getBytes(StandardCharsets.UTF_8);
+    Resource resource = cache.put(documentId, "h", new ByteArrayResource(state));
+
+    try (InputStream first = resource.getInputStream(); InputStream second = resource.getInputStream()) {
+      assertThat(first.skip(5)).isEqualTo(5);
+      assertThat(second.read()).isEqualTo('0');
+      assertThat(first.readAllBytes()).isEqualTo("56789".getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void skipsOversizedContentAndDropsInvalidatedDocuments() {
+    UUID documentId = UUID.randomUUID();
+    Resource large = new ByteArrayResource(new byte[128 * 1024]);
+
+    assertThat(cache.put(documentId, "large", large)).isSameAs(large);
+    assertThat(cache.find(documentId, "large")).isEmpty();
+
+    cache.put(documentId, "small", new ByteArrayResource(new byte[] {1, 2, 3}));
+    cache.invalidate(documentId);
+    assertThat(cache.find(documentId, "small")).isEmpty();
+  }
+
+  private static byte[] bytes(Resource resource) {
+    try {
+      return resource.getContentAsByteArray();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
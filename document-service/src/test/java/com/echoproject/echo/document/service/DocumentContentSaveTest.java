@@ -0,0 +1,80 @@
+package com.echoproject.echo.document.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import com.echoproject.echo.document.dto.CreateDocumentRequest;
+import com.echoproject.echo.document.dto.DocumentUpdateResponse;
+import com.echoproject.echo.user.client.UserServiceClient;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Goes through the real repositories: saveDocumentContent runs without a surrounding transaction,
+// so its modifying queries must bring their own.
+@SpringBootTest
+class DocumentContentSaveTest {
+
+  @Autowired private DocumentService documentService;
+  @Autowired private DocumentUpdateLogService updateLogService;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @MockBean private UserServiceClient userClient;
+
+  private final UUID ownerId = UUID.randomUUID();
+  private UUID documentId;
+
+  @BeforeEach
+  void createDocument() {
+    when(userClient.getSummaries(any())).thenReturn(Map.of());
+    CreateDocumentRequest request = new CreateDocumentRequest();
+    request.setTitle("save test");
+    documentId = documentService.createDocument(ownerId, request).getId();
+  }
+
+  @AfterEach
+  void deleteDocument() {
+    documentService.deleteDocument(ownerId, documentId);
+  }
+
+  @Test
+  void saveStoresTheStateAndTouchesTheOwnersActivity() {
+    jdbcTemplate.update("UPDATE user_document_access SET last_activity = last_activity - interval '1 hour' "
+        + "WHERE document_id = ?", documentId);
+    byte[] state = "saved state".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    documentService.saveDocumentContent(ownerId, documentId, new ByteArrayInputStream(state), state.length);
+
+    assertThat(jdbcTemplate.queryForObject("SELECT last_activity > now() - interval '1 minute' "
+        + "FROM user_document_access WHERE document_id = ? AND user_id = ?", Boolean.class, documentId, ownerId))
+        .isTrue();
+    assertThat(documentService.getDocumentContentHeader(ownerId, documentId).getContentHash()).isNotNull();
+  }
+
+  @Test
+  void compactionStreamsTheStateInAsTheBaseThroughTheGivenSeq() {
+    updateLogService.appendUpdate(ownerId, documentId, new byte[] {1});
+    long throughSeq = updateLogService.appendUpdate(ownerId, documentId, new byte[] {2});
+    updateLogService.appendUpdate(ownerId, documentId, new byte[] {3});
+    byte[] state = "compacted state".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    assertThat(updateLogService.compact(ownerId, documentId, new ByteArrayInputStream(state), state.length, throughSeq))
+        .isTrue();
+
+    var updates = updateLogService.getUpdates(ownerId, documentId, null);
+    assertThat(updates.getBaseSeq()).isEqualTo(throughSeq);
+    assertThat(updates.getBase()).isEqualTo(state);
+    assertThat(updates.getUpdates()).extracting(DocumentUpdateResponse::getSeq).containsExactly(throughSeq + 1);
+    // Already folded that far: nothing to replace.
+    assertThat(updateLogService.compact(ownerId, documentId, new ByteArrayInputStream(state), state.length, throughSeq))
+        .isFalse();
+  }
+}
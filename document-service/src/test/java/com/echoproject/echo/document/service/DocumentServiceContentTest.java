@@ -0,0 +1,103 @@
+package com.echoproject.echo.document.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.common.concurrent.ConcurrentCalls;
+import com.echoproject.echo.common.exception.ContentUnavailableException;
+import com.echoproject.echo.document.domain.DocumentAccess;
+import com.echoproject.echo.document.domain.PendingContent;
+import com.echoproject.echo.document.repository.DocumentCollaboratorRepository;
+import com.echoproject.echo.document.repository.DocumentContentRepository;
+import com.echoproject.echo.document.repository.DocumentContentRepository.ContentHeader;
+import com.echoproject.echo.document.repository.DocumentRepository;
+import com.echoproject.echo.document.repository.UserDocumentAccessRepository;
+import com.echoproject.echo.notification.client.CollaborationServiceClient;
+import com.echoproject.echo.notification.service.NotificationService;
+import com.echoproject.echo.user.client.UserServiceClient;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DocumentServiceContentTest {
+
+  private final UUID ownerId = UUID.randomUUID();
+  private final UUID documentId = UUID.randomUUID();
+  private final DocumentContentRepository contentRepository = mock(DocumentContentRepository.class);
+  private final DocumentContentBuffer contentBuffer = mock(DocumentContentBuffer.class);
+  private final DocumentUpdateCompactor updateCompactor = mock(DocumentUpdateCompactor.class);
+  private final CollaborationServiceClient collaborationClient = mock(CollaborationServiceClient.class);
+  private DocumentService service;
+
+  @BeforeEach
+  void setUp() {
+    DocumentAccessCache accessCache = mock(DocumentAccessCache.class);
+    when(accessCache.get(documentId)).thenReturn(new DocumentAccess(ownerId, Set.of()));
+    when(contentBuffer.find(documentId)).thenReturn(Optional.empty());
+    service = new DocumentService(
+        mock(DocumentRepository.class),
+        mock(DocumentCollaboratorRepository.class),
+        contentRepository,
+        mock(UserServiceClient.class),
+        mock(NotificationService.class),
+        collaborationClient,
+        new ConcurrentCalls(Runnable::run),
+        accessCache,
+        mock(UserDocumentAccessRepository.class),
+        mock(ContentCompressor.class),
+        contentBuffer, mock(DocumentContentCache.class), updateCompactor);
+  }
+
+  @Test
+  void unfoldedUpdatesAreNeverServedAsTheFullState() {
+    when(contentRepository.findHeaderByDocumentId(documentId)).thenReturn(Optional.of(header(3, 5)));
+
+    assertThatThrownBy(() -> service.getDocumentContentHeader(ownerId, documentId))
+        .isInstanceOf(ContentUnavailableException.class);
+    assertThatThrownBy(() -> service.getDocumentContent(ownerId, documentId))
+        .isInstanceOf(ContentUnavailableException.class);
+    verify(updateCompactor, atLeastOnce()).requestSoon(documentId);
+    verify(collaborationClient, never()).requestCompaction(eq(documentId), any());
+  }
+
+  @Test
+  void foldedBaseIsServedWithoutAskingForCompaction() {
+    when(contentRepository.findHeaderByDocumentId(documentId)).thenReturn(Optional.of(header(5, 5)));
+
+    assertThat(service.getDocumentContentHeader(ownerId, documentId).getContentHash()).isEqualTo("hash");
+    verify(updateCompactor, never()).requestSoon(documentId);
+  }
+
+  @Test
+  void bufferedStateIsNotServedOnceTheLogMovedPastIt() {
+    when(contentBuffer.find(documentId)).thenReturn(Optional.of(
+        new PendingContent(documentId, new byte[] {1}, 1, "buffered", 3, LocalDateTime.now())));
+    when(contentRepository.findHeaderByDocumentId(documentId)).thenReturn(Optional.of(header(3, 5)));
+
+    assertThatThrownBy(() -> service.getDocumentContentHeader(ownerId, documentId))
+        .isInstanceOf(ContentUnavailableException.class);
+
+    when(contentRepository.findHeaderByDocumentId(documentId)).thenReturn(Optional.of(header(0, 3)));
+    assertThat(service.getDocumentContentHeader(ownerId, documentId).getContentHash()).isEqualTo("buffered");
+  }
+
+  private static ContentHeader header(long baseSeq, long headSeq) {
+    return new ContentHeader() {
+      @Override public String getContentHash() { return "hash"; }
+      @Override public long getBaseSeq() { return baseSeq; }
+      @Override public long getHeadSeq() { return headSeq; }
+      @Override public LocalDateTime getUpdatedAt() { return LocalDateTime.now(); }
+    };
+  }
+}
@@ -0,0 +1,112 @@
+package com.echoproject.echo.document.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.common.concurrent.ConcurrentCalls;
+import com.echoproject.echo.document.domain.DocumentAccess;
+import com.echoproject.echo.document.models.Document;
+import com.echoproject.echo.document.repository.DocumentCollaboratorRepository;
+import com.echoproject.echo.document.repository.DocumentContentRepository;
+import com.echoproject.echo.document.repository.DocumentRepository;
+import com.echoproject.echo.document.repository.UserDocumentAccessRepository;
+import com.echoproject.echo.notification.client.CollaborationServiceClient;
+import com.echoproject.echo.notification.service.NotificationService;
+import com.echoproject.echo.user.client.UserServiceClient;
+import com.echoproject.echo.user.client.UserServiceClient.UserSummary;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+class DocumentServiceLatencyTest {
+
+  private static final long DOWNSTREAM_DELAY_MS = 150;
+
+  private final UUID ownerId = UUID.randomUUID();
+  private final UUID collaboratorId = UUID.randomUUID();
+  private final Document document = new Document("Notes", ownerId);
+
+  private DocumentRepository documentRepository;
+  private DocumentAccessCache accessCache;
+  private UserServiceClient userClient;
+  private ExecutorService pool;
+  private volatile Thread documentReader;
+
+  @BeforeEach
+  void setUp() {
+    documentRepository = mock(DocumentRepository.class);
+    accessCache = mock(DocumentAccessCache.class);
+    userClient = mock(UserServiceClient.class);
+    pool = Executors.newFixedThreadPool(4);
+
+    when(documentRepository.findById(document.getId())).thenAnswer(invocation -> {
+      documentReader = Thread.currentThread();
+      return slow(Optional.of(document)).answer(invocation);
+    });
+    when(accessCache.get(document.getId())).thenReturn(new DocumentAccess(ownerId, Set.of(collaboratorId)));
+    when(userClient.getSummaries(any())).thenAnswer(slow(Map.of(
+        ownerId, new UserSummary(ownerId, "owner", "Owner", null),
+        collaboratorId, new UserSummary(collaboratorId, "collab", "Collaborator", null))));
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  void getDocumentOverlapsIndependentLookups() {
+    DocumentService sequential = service(new ConcurrentCalls(Runnable::run));
+    DocumentService parallel = service(new ConcurrentCalls(pool));
+
+    // Warm up class loading and mock plumbing before timing.
+    parallel.getDocument(ownerId, document.getId());
+
+    long sequentialMs = time(() -> sequential.getDocument(ownerId, document.getId()));
+    long parallelMs = time(() -> parallel.getDocument(ownerId, document.getId()));
+
+    assertThat(sequentialMs).isGreaterThanOrEqualTo(2 * DOWNSTREAM_DELAY_MS);
+    assertThat(parallelMs).isLessThan(sequentialMs - DOWNSTREAM_DELAY_MS / 2);
+    assertThat(parallel.getDocument(ownerId, document.getId()).getCollaborators()).hasSize(1);
+    // The row is read on the request thread, inside its transaction; only the user-service call is forked.
+    assertThat(documentReader).isSameAs(Thread.currentThread());
+  }
+
+  private DocumentService service(ConcurrentCalls concurrentCalls) {
+    return new DocumentService(
+        documentRepository,
+        mock(DocumentCollaboratorRepository.class),
+        mock(DocumentContentRepository.class),
+        userClient,
+        mock(NotificationService.class),
+        mock(CollaborationServiceClient.class),
+        concurrentCalls,
+        accessCache,
+        mock(UserDocumentAccessRepository.class),
+        mock(ContentCompressor.class),
+        mock(DocumentContentBuffer.class), mock(DocumentContentCache.class), mock(DocumentUpdateCompactor.class));
+  }
+
+  private static <T> Answer<T> slow(T value) {
+    return invocation -> {
+      Thread.sleep(DOWNSTREAM_DELAY_MS);
+      return value;
+    };
+  }
+
+  private static long time(Runnable call) {
+    long start = System.nanoTime();
+    call.run();
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+}
@@ -0,0 +1,52 @@
+package com.echoproject.echo.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+class IdentitySignatureTest {
+
+  private static final String SECRET = "test-identity-secret";
+  private static final UUID USER_ID = UUID.fromString("11111111-2222-3333-4444-555555555555");
+  private static final String PATH = "/api/documents/abc/content";
+  private static final Instant ISSUED = Instant.ofEpochSecond(1_700_000_000L);
+
+  // Every signer (gateway, services, collaboration-service) must produce exactly this.
+  @Test
+  void signsTheFixedWireFormat() {
+    HttpHeaders headers = new HttpHeaders();
+    signatureAt(ISSUED).apply(headers, USER_ID, "alice", "PUT", PATH);
+
+    assertThat(headers.getFirst(IdentitySignature.USER_ID_HEADER)).isEqualTo(USER_ID.toString());
+    assertThat(headers.getFirst(IdentitySignature.USERNAME_HEADER)).isEqualTo("alice");
+    assertThat(headers.getFirst(IdentitySignature.ISSUED_AT_HEADER)).isEqualTo("1700000000");
+    assertThat(headers.getFirst(IdentitySignature.SIGNATURE_HEADER))
+        .isEqualTo("uKQfOG3R9put-7PizJPpg24KWcfP5i0yvbcnzEqHoTw");
+  }
+
+  @Test
+  void acceptsOnlyTheSignedRequestLineWithinMaxAge() {
+    String signature = "uKQfOG3R9put-7PizJPpg24KWcfP5i0yvbcnzEqHoTw";
+    String userId = USER_ID.toString();
+
+    assertThat(signatureAt(ISSUED.plusSeconds(120)).isValid(userId, "alice", "1700000000", signature, "PUT", PATH))
+        .isTrue();
+    assertThat(signatureAt(ISSUED.plusSeconds(121)).isValid(userId, "alice", "1700000000", signature, "PUT", PATH))
+        .isFalse();
+    assertThat(signatureAt(ISSUED).isValid(userId, "alice", "1700000000", signature, "DELETE", PATH)).isFalse();
+    assertThat(signatureAt(ISSUED).isValid(userId, "alice", "1700000000", signature, "PUT", PATH + "/x")).isFalse();
+    assertThat(signatureAt(ISSUED).isValid(userId, "alice", "1700000001", signature, "PUT", PATH)).isFalse();
+    assertThat(signatureAt(ISSUED).isValid(userId, "alice", null, signature, "PUT", PATH)).isFalse();
+    assertThat(signatureAt(ISSUED).isValid(userId, "alice", "soon", signature, "PUT", PATH)).isFalse();
+  }
+
+  private static IdentitySignature signatureAt(Instant now) {
+    return new IdentitySignature(SECRET, Duration.ofMinutes(2), Clock.fixed(now, ZoneOffset.UTC));
+  }
+}
@@ -0,0 +1,66 @@
+package com.echoproject.echo.user.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.echoproject.echo.user.client.UserServiceClient.UserSummary;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class UserSummaryBatcherTest {
+
+  @Test
+  void concurrentCallersShareOneRequest() throws Exception {
+    UUID owner = UUID.randomUUID();
+    List<Set<UUID>> requests = new CopyOnWriteArrayList<>();
+    UserSummaryBatcher batcher = new UserSummaryBatcher((ids, auth) -> {
+      requests.add(Set.copyOf(ids));
+      return ids.stream().collect(Collectors.toMap(id -> id, id -> new UserSummary(id, id.toString(), null, null)));
+    }, Duration.ofMillis(200), 1000);
+
+    int callers = 20;
+    ExecutorService pool = Executors.newFixedThreadPool(callers);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<Map<UUID, UserSummary>>> results = IntStream.range(0, callers)
+          .mapToObj(i -> pool.submit(() -> {
+            start.await();
+            return batcher.load(Set.of(owner, UUID.randomUUID()), "Bearer t");
+          }))
+          .toList();
+      start.countDown();
+      for (Future<Map<UUID, UserSummary>> result : results) {
+        assertThat(result.get()).hasSize(2).containsKey(owner);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertThat(requests).hasSizeLessThan(callers);
+    assertThat(requests.stream().mapToInt(Set::size).sum()).isLessThan(callers * 2);
+  }
+
+  @Test
+  void fullBatchIsSentWithoutWaitingAndFailuresReachEveryCaller() {
+    List<Set<UUID>> requests = new CopyOnWriteArrayList<>();
+    UserSummaryBatcher batcher = new UserSummaryBatcher((ids, auth) -> {
+      requests.add(Set.copyOf(ids));
+      throw new IllegalStateException("user-service down");
+    }, Duration.ofMinutes(1), 2);
+
+    assertThatThrownBy(() -> batcher.load(List.of(UUID.randomUUID(), UUID.randomUUID()), null))
+        .isInstanceOf(IllegalStateException.class);
+    assertThat(requests).hasSize(1);
+  }
+}
@@ -0,0 +1,58 @@
+package com.echoproject.echo.user.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.echoproject.echo.user.client.UserServiceClient.UserSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class UserSummaryCacheTest {
+
+  private final UUID alice = UUID.randomUUID();
+  private final UUID bob = UUID.randomUUID();
+
+  @Test
+  void onlyMissingIdsAreRequested() {
+    UserSummaryCache cache = cache(Duration.ofMinutes(5));
+    List<Set<UUID>> requests = new ArrayList<>();
+
+    cache.getAll(Set.of(alice), ids -> {
+      requests.add(ids);
+      return Map.of(alice, summary(alice, "alice"));
+    });
+    Map<UUID, UserSummary> result = cache.getAll(Set.of(alice, bob), ids -> {
+      requests.add(ids);
+      return Map.of(bob, summary(bob, "bob"));
+    });
+
+    assertThat(requests).containsExactly(Set.of(alice), Set.of(bob));
+    assertThat(result).containsOnlyKeys(alice, bob);
+  }
+
+  @Test
+  void expiredEntriesAreServedStaleWhenLoadFails() {
+    UserSummaryCache cache = cache(Duration.ZERO);
+    cache.getAll(Set.of(alice), ids -> Map.of(alice, summary(alice, "alice")));
+
+    Map<UUID, UserSummary> result = cache.getAll(Set.of(alice, bob), ids -> {
+      throw new IllegalStateException("user-service down");
+    });
+
+    assertThat(result).containsOnlyKeys(alice);
+    assertThat(result.get(alice).username()).isEqualTo("alice");
+  }
+
+  private static UserSummaryCache cache(Duration ttl) {
+    return new UserSummaryCache(new SimpleMeterRegistry(), 100, ttl, ttl, Duration.ofHours(1), 1, 8);
+  }
+
+  private static UserSummary summary(UUID id, String username) {
+    return new UserSummary(id, username, null, null);
+  }
+}
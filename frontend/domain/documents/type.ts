@@ -14,6 +14,11 @@ export interface Document {
     updatedAt: string;
 }
 
+export interface DocumentPage {
+    items: Document[];
+    nextCursor: string | null;
+}
+
 export interface CreateDocumentRequest {
     title: string;
 }
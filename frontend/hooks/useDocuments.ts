@@ -1,11 +1,13 @@
-import { useMutation, useQuery, useQueryClient } from '@tanstack/react-query';
+import { useInfiniteQuery, useMutation, useQuery, useQueryClient } from '@tanstack/react-query';
 import { documentsApi } from '@/lib/api/documents';
 import { CreateDocumentRequest, CreateVersionRequest } from "@/domain/documents/type";
 
 export const useDocuments = () => {
-  return useQuery({
+  return useInfiniteQuery({
     queryKey: ['documents'],
-    queryFn: documentsApi.getAll,
+    queryFn: ({ pageParam }) => documentsApi.getPage(pageParam),
+    initialPageParam: undefined as string | undefined,
+    getNextPageParam: (lastPage) => lastPage.nextCursor ?? undefined,
   });
 };
 
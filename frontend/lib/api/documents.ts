@@ -1,9 +1,11 @@
 import { axiosInstance } from '../axios';
-import DocumentVersion, {AddCollaboratorRequest, CreateDocumentRequest, CreateVersionRequest, Document, UserSearchResult} from "@/domain/documents/type";
+import DocumentVersion, {AddCollaboratorRequest, CreateDocumentRequest, CreateVersionRequest, Document, DocumentPage, UserSearchResult} from "@/domain/documents/type";
 
 export const documentsApi = {
-  getAll: async (): Promise<Document[]> => {
-    const response = await axiosInstance.get('/api/documents');
+  getPage: async (cursor?: string): Promise<DocumentPage> => {
+    const response = await axiosInstance.get('/api/documents', {
+      params: { sort: 'updatedAt', cursor },
+    });
     return response.data;
   },
 
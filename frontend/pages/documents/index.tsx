@@ -10,7 +10,8 @@ import {formatDate} from "@/lib/utils";
 import { Skeleton } from '@/components/ui/skeleton';
 
 export default function Documents() {
-  const { data: documents, isLoading, isError } = useDocuments();
+  const { data, isLoading, isError, hasNextPage, fetchNextPage, isFetchingNextPage } = useDocuments();
+  const documents = useMemo(() => data?.pages.flatMap(page => page.items), [data]);
   const [isCreateDialogOpen, setIsCreateDialogOpen] = useState(false);
   const [selectedDocumentId, setSelectedDocumentId] = useState<string | null>(null);
   const [searchQuery, setSearchQuery] = useState('');
@@ -93,7 +94,7 @@ export default function Documents() {
                   ? 'No documents yet. Create your first one!'
                   : searchQuery
                   ? `${filteredDocuments.length} of ${documents?.length} document${documents?.length === 1 ? '' : 's'}`
-                  : `${documents?.length} document${documents?.length === 1 ? '' : 's'}`}
+                  : `${documents?.length}${hasNextPage ? '+' : ''} document${documents?.length === 1 ? '' : 's'}`}
               </p>
             </div>
             <Button onClick={() => setIsCreateDialogOpen(true)} size="lg">
@@ -146,6 +147,14 @@ export default function Documents() {
               ))}
             </div>
           )}
+
+          {hasNextPage && (
+            <div className={styles.loadMore}>
+              <Button variant="outline" onClick={() => fetchNextPage()} disabled={isFetchingNextPage}>
+                {isFetchingNextPage ? 'Loading...' : 'Load more'}
+              </Button>
+            </div>
+          )}
         </div>
 
         <CreateDocumentDialog
@@ -1,9 +1,12 @@
 package com.echoproject.gateway.security;
 
+import java.util.Optional;
+import java.util.UUID;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.util.AntPathMatcher;
@@ -13,11 +16,15 @@ import reactor.core.publisher.Mono;
 @Component
 public class GatewayAuthFilter implements GlobalFilter, Ordered {
 
-  private final JwtUtil jwtUtil;
+  private final VerifiedTokenCache tokenCache;
+  private final UserIdentityResolver identityResolver;
+  private final IdentitySignature identitySignature;
   private static final AntPathMatcher MATCHER = new AntPathMatcher();
 
-  public GatewayAuthFilter(JwtUtil jwtUtil) {
-    this.jwtUtil = jwtUtil;
+  public GatewayAuthFilter(VerifiedTokenCache tokenCache, UserIdentityResolver identityResolver, IdentitySignature identitySignature) {
+    this.tokenCache = tokenCache;
+    this.identityResolver = identityResolver;
+    this.identitySignature = identitySignature;
   }
 
   @Override
@@ -28,27 +35,54 @@ public class GatewayAuthFilter implements GlobalFilter, Ordered {
     boolean excluded = isExcluded(path);
 
     if (excluded) {
-      return chain.filter(exchange);
+      return chain.filter(withoutIdentity(exchange));
     }
 
     if (ws && path.startsWith("/ws/")) {
-      return chain.filter(exchange);
+      return chain.filter(withoutIdentity(exchange));
     }
 
     if (authHeader != null && authHeader.startsWith("Bearer ")) {
       String token = authHeader.substring(7);
-      String username = jwtUtil.validateTokenAndGetUsername(token);
+      String username = tokenCache.getUsername(token);
       if (username != null) {
-        ServerHttpRequest mutated = exchange.getRequest().mutate()
-            .headers(httpHeaders -> httpHeaders.set("X-Username", username))
-            .build();
-        return chain.filter(exchange.mutate().request(mutated).build());
+        return identityResolver.resolveUserId(username)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .onErrorResume(e -> reject(exchange, HttpStatus.SERVICE_UNAVAILABLE).then(Mono.empty()))
+            .flatMap(userId -> userId.isPresent()
+                ? chain.filter(withIdentity(exchange, userId.get(), username))
+                : reject(exchange, HttpStatus.UNAUTHORIZED));
       } else {
-        exchange.getResponse().setStatusCode(org.springframework.http.HttpStatus.UNAUTHORIZED);
-        return exchange.getResponse().setComplete();
+        return reject(exchange, HttpStatus.UNAUTHORIZED);
       }
     }
-    exchange.getResponse().setStatusCode(org.springframework.http.HttpStatus.UNAUTHORIZED);
+    return reject(exchange, HttpStatus.UNAUTHORIZED);
+  }
+
+  private ServerWebExchange withIdentity(ServerWebExchange exchange, UUID userId, String username) {
+    ServerHttpRequest request = exchange.getRequest();
+    ServerHttpRequest mutated = request.mutate()
+        .headers(httpHeaders -> identitySignature.apply(
+            httpHeaders, userId, username, request.getMethod().name(), request.getURI().getRawPath()))
+        .build();
+    return exchange.mutate().request(mutated).build();
+  }
+
+  private ServerWebExchange withoutIdentity(ServerWebExchange exchange) {
+    ServerHttpRequest mutated = exchange.getRequest().mutate()
+        .headers(httpHeaders -> {
+          httpHeaders.remove(IdentitySignature.USER_ID_HEADER);
+          httpHeaders.remove(IdentitySignature.USERNAME_HEADER);
+          httpHeaders.remove(IdentitySignature.ISSUED_AT_HEADER);
+          httpHeaders.remove(IdentitySignature.SIGNATURE_HEADER);
+        })
+        .build();
+    return exchange.mutate().request(mutated).build();
+  }
+
+  private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+    exchange.getResponse().setStatusCode(status);
     return exchange.getResponse().setComplete();
   }
 
@@ -0,0 +1,62 @@
+package com.echoproject.gateway.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.UUID;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+// Signs identity headers over when they were issued and the request line they are for; the
+// services' IdentitySignature verifies the same payload and rejects stale or replayed headers.
+@Component
+public class IdentitySignature {
+  public static final String USER_ID_HEADER = "X-User-Id";
+  public static final String USERNAME_HEADER = "X-Username";
+  public static final String ISSUED_AT_HEADER = "X-User-Issued-At";
+  public static final String SIGNATURE_HEADER = "X-User-Signature";
+
+  // The gateway's own identity, for calls it makes before any user is resolved.
+  public static final UUID SERVICE_ACCOUNT_ID = new UUID(0L, 0L);
+  public static final String SERVICE_ACCOUNT_NAME = "gateway";
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final SecretKeySpec key;
+  private final Clock clock;
+
+  @Autowired
+  public IdentitySignature(@Value("${identity.secret}") String secret) {
+    this(secret, Clock.systemUTC());
+  }
+
+  IdentitySignature(String secret, Clock clock) {
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    this.clock = clock;
+  }
+
+  // path is the raw request path without the query string, as the receiver's getRequestURI() sees it.
+  public void apply(HttpHeaders headers, UUID userId, String username, String method, String path) {
+    String issuedAt = Long.toString(clock.instant().getEpochSecond());
+    headers.set(USER_ID_HEADER, userId.toString());
+    headers.set(USERNAME_HEADER, username);
+    headers.set(ISSUED_AT_HEADER, issuedAt);
+    headers.set(SIGNATURE_HEADER, sign(userId.toString(), username, issuedAt, method, path));
+  }
+
+  private String sign(String userId, String username, String issuedAt, String method, String path) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      String payload = String.join("\n", userId, username, issuedAt, method, path);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.echoproject.gateway.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
@@ -9,16 +10,22 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class JwtUtil {
-  @Value("${jwt.secret}")
-  private String secret;
+  private final JWTVerifier verifier;
 
-  public String validateTokenAndGetUsername(String token) {
+  public JwtUtil(@Value("${jwt.secret}") String secret) {
+    this.verifier = JWT.require(Algorithm.HMAC256(secret)).build();
+  }
+
+  public DecodedJWT verify(String token) {
     try {
-      DecodedJWT jwt = JWT.require(Algorithm.HMAC256(secret)).build().verify(token);
-      return jwt.getSubject();
+      return verifier.verify(token);
     } catch (JWTVerificationException e) {
       return null;
     }
   }
-}
 
+  public String validateTokenAndGetUsername(String token) {
+    DecodedJWT jwt = verify(token);
+    return jwt != null ? jwt.getSubject() : null;
+  }
+}
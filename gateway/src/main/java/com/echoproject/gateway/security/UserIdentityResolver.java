@@ -0,0 +1,65 @@
+package com.echoproject.gateway.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+@Component
+public class UserIdentityResolver {
+
+  private final WebClient webClient;
+  private final String userServiceUrl;
+  private final IdentitySignature identitySignature;
+  private final AsyncCache<String, UUID> cache;
+
+  public UserIdentityResolver(
+      WebClient.Builder webClientBuilder,
+      MeterRegistry meterRegistry,
+      IdentitySignature identitySignature,
+      @Value("${gateway.user-service-url}") String userServiceUrl,
+      @Value("${gateway.auth.identity-cache.max-size:50000}") long maxSize,
+      @Value("${gateway.auth.identity-cache.ttl:PT10M}") Duration ttl) {
+    this.webClient = webClientBuilder.build();
+    this.userServiceUrl = userServiceUrl;
+    this.identitySignature = identitySignature;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .buildAsync();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "gateway.identities");
+  }
+
+  // Empty when the user no longer exists; misses are not cached so a new account resolves immediately.
+  public Mono<UUID> resolveUserId(String username) {
+    return Mono.fromFuture(cache.get(username, (key, executor) -> fetchUserId(key).toFuture()));
+  }
+
+  // Signed as the gateway itself: user-service only answers this lookup for the service account.
+  private Mono<UUID> fetchUserId(String username) {
+    URI uri = UriComponentsBuilder.fromHttpUrl(userServiceUrl).path("/api/internal/users/by-username/{username}")
+        .encode().buildAndExpand(username).toUri();
+    return webClient.get()
+        .uri(uri)
+        .headers(headers -> identitySignature.apply(headers, IdentitySignature.SERVICE_ACCOUNT_ID,
+            IdentitySignature.SERVICE_ACCOUNT_NAME, "GET", uri.getRawPath()))
+        .exchangeToMono(response -> {
+          if (response.statusCode() == HttpStatus.NOT_FOUND) return response.releaseBody().then(Mono.<UUID>empty());
+          if (response.statusCode().isError()) return response.createError();
+          return response.bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+              .map(body -> UUID.fromString(String.valueOf(body.get("id"))));
+        });
+  }
+}
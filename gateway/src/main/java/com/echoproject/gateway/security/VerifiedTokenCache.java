@@ -0,0 +1,81 @@
+package com.echoproject.gateway.security;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class VerifiedTokenCache {
+
+  private final JwtUtil jwtUtil;
+  private final Duration maxTtl;
+  private final Cache<String, VerifiedToken> cache;
+
+  public VerifiedTokenCache(
+      JwtUtil jwtUtil,
+      MeterRegistry meterRegistry,
+      @Value("${gateway.auth.token-cache.max-size:10000}") long maxSize,
+      @Value("${gateway.auth.token-cache.max-ttl:PT10M}") Duration maxTtl) {
+    this.jwtUtil = jwtUtil;
+    this.maxTtl = maxTtl;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new UntilTokenExpiry())
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.tokens");
+  }
+
+  // Keyed on a digest so raw bearer tokens never sit in the heap longer than the request.
+  public String getUsername(String token) {
+    VerifiedToken verified = cache.get(digest(token), key -> verify(token));
+    return verified != null ? verified.username() : null;
+  }
+
+  private VerifiedToken verify(String token) {
+    DecodedJWT jwt = jwtUtil.verify(token);
+    if (jwt == null || jwt.getSubject() == null) return null;
+    Instant expiresAt = jwt.getExpiresAtAsInstant();
+    Instant cap = Instant.now().plus(maxTtl);
+    return new VerifiedToken(jwt.getSubject(), expiresAt == null || expiresAt.isAfter(cap) ? cap : expiresAt);
+  }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  record VerifiedToken(String username, Instant expiresAt) {}
+
+  private static class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+    @Override
+    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+      return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -36,7 +36,7 @@ public class SecurityConfig {
             .accessDeniedHandler(new AccessDeniedHandlerImpl()))
         .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .authorizeHttpRequests(auth -> auth
-            .requestMatchers("/api/auth/login", "/api/auth/register", "/api/health/**").permitAll()
+            .requestMatchers("/api/auth/login", "/api/auth/register", "/api/health/**", "/actuator/**").permitAll()
             .anyRequest().authenticated())
         .addFilterBefore(headerAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
     return http.build();
@@ -8,6 +8,9 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 @Getter
 public class CustomUserDetails implements UserDetails {
+  // Signed by the gateway when it resolves a login, before any user identity exists.
+  public static final UUID SERVICE_ACCOUNT_ID = new UUID(0L, 0L);
+
   private final UUID id;
   private final String username;
   private final String password;
@@ -21,6 +24,8 @@ public class CustomUserDetails implements UserDetails {
     this.authorities = authorities;
   }
 
+  public boolean isServiceAccount(){return SERVICE_ACCOUNT_ID.equals(id);}
+
   @Override public Collection<? extends GrantedAuthority> getAuthorities() { return authorities; }
   @Override public String getPassword() { return password; }
   @Override public String getUsername() { return username; }
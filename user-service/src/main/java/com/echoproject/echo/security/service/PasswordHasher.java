@@ -0,0 +1,82 @@
+package com.echoproject.echo.security.service;
+
+import com.echoproject.echo.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+// BCrypt is deliberately slow, so it runs on a pool sized to the CPU rather than on request
+// threads. When the queue is full callers are turned away immediately instead of piling up.
+@Component
+public class PasswordHasher implements DisposableBean {
+
+  private final PasswordEncoder passwordEncoder;
+  private final ExecutorService executor;
+  private final long retryAfterSeconds;
+
+  public PasswordHasher(
+      PasswordEncoder passwordEncoder,
+      MeterRegistry meterRegistry,
+      @Value("${auth.hashing.threads:0}") int threads,
+      @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+      @Value("${auth.hashing.retry-after-seconds:2}") long retryAfterSeconds) {
+    this.passwordEncoder = passwordEncoder;
+    this.retryAfterSeconds = retryAfterSeconds;
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger counter = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+        poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        r -> {
+          Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+    this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "auth.hashing");
+  }
+
+  public String encode(CharSequence rawPassword) {
+    return run(() -> passwordEncoder.encode(rawPassword));
+  }
+
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+  }
+
+  private <T> T run(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      throw new ServiceBusyException("Too many authentication requests, try again shortly", retryAfterSeconds);
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ServiceBusyException("Authentication interrupted", retryAfterSeconds);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+}
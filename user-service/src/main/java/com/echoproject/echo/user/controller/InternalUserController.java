@@ -1,15 +1,26 @@
 package com.echoproject.echo.user.controller;
 
+import com.echoproject.echo.common.exception.BadRequestException;
 import com.echoproject.echo.common.exception.NotFoundException;
+import com.echoproject.echo.security.service.CustomUserDetails;
+import com.echoproject.echo.user.dto.UserSearchRequest;
 import com.echoproject.echo.user.dto.UserSearchResponse;
 import com.echoproject.echo.user.dto.UserSummaryResponse;
 import com.echoproject.echo.user.models.User;
 import com.echoproject.echo.user.repository.UserRepository;
+import com.echoproject.echo.user.service.UserProfileService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -18,6 +29,11 @@ import org.springframework.web.bind.annotation.*;
 public class InternalUserController {
 
   private final UserRepository userRepository;
+  private final UserProfileService userProfileService;
+  private final ObjectMapper objectMapper;
+
+  @Value("${user.summaries.chunk-size:500}")
+  private int summariesChunkSize;
 
   @GetMapping("/{id}/summary")
   public ResponseEntity<UserSummaryResponse> getSummary(@PathVariable UUID id) {
@@ -25,28 +41,42 @@ public class InternalUserController {
     return ResponseEntity.ok(toSummary(user));
   }
 
+  // Written chunk by chunk so large batches never hold every row or an entity graph in memory.
   @PostMapping("/summaries")
-  public ResponseEntity<List<UserSummaryResponse>> getSummaries(@RequestBody List<UUID> ids) {
-    List<User> users = userRepository.findAllById(ids);
-    return ResponseEntity.ok(users.stream().map(this::toSummary).toList());
+  public void getSummaries(@RequestBody List<UUID> ids, HttpServletResponse response) throws IOException {
+    List<UUID> distinctIds = ids.stream().distinct().toList();
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      json.writeStartArray();
+      for (int from = 0; from < distinctIds.size(); from += summariesChunkSize) {
+        List<UUID> chunk = distinctIds.subList(from, Math.min(from + summariesChunkSize, distinctIds.size()));
+        for (UserSummaryResponse summary : userRepository.findSummariesByIdIn(chunk)) {
+          json.writeObject(summary);
+        }
+        json.flush();
+      }
+      json.writeEndArray();
+    }
   }
 
+  // Lets the gateway turn a token's username into an id, so only the service account may call it.
   @GetMapping("/by-username/{username}")
-  public ResponseEntity<Map<String, Object>> getByUsername(@PathVariable String username) {
+  public ResponseEntity<Map<String, Object>> getByUsername(
+      @AuthenticationPrincipal CustomUserDetails caller, @PathVariable String username) {
+    if (!caller.isServiceAccount()) throw new BadRequestException("Access denied");
     User user = userRepository.findByUsername(username).orElseThrow(() -> new NotFoundException("User not found"));
     return ResponseEntity.ok(Map.of("id", user.getId(), "username", user.getUsername()));
   }
 
   @GetMapping("/search")
   public ResponseEntity<List<UserSearchResponse>> search(@RequestParam String query) {
-    if (query == null || query.isBlank()) return ResponseEntity.ok(List.of());
-    List<User> users = userRepository.searchByUsername(query.trim());
-    return ResponseEntity.ok(users.stream().map(u -> new UserSearchResponse(
-        u.getId(),
-        u.getUsername(),
-        u.getProfile() != null ? u.getProfile().getFullName() : null,
-        u.getProfile() != null ? u.getProfile().getProfilePicture() : null
-    )).limit(10).toList());
+    return ResponseEntity.ok(userProfileService.searchUsers(query));
+  }
+
+  @PostMapping("/search")
+  public ResponseEntity<List<UserSearchResponse>> search(@RequestBody UserSearchRequest request) {
+    int limit = request.getLimit() != null ? request.getLimit() : 10;
+    return ResponseEntity.ok(userProfileService.searchUsers(request.getQuery(), request.getExcludeIds(), limit));
   }
 
   private UserSummaryResponse toSummary(User u) {
@@ -0,0 +1,14 @@
+package com.echoproject.echo.user.dto;
+
+import java.util.Set;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class UserSearchRequest {
+  private String query;
+  private Set<UUID> excludeIds;
+  private Integer limit;
+}
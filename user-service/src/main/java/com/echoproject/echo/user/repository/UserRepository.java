@@ -1,6 +1,8 @@
 package com.echoproject.echo.user.repository;
 
+import com.echoproject.echo.user.dto.UserSummaryResponse;
 import com.echoproject.echo.user.models.User;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -10,7 +12,22 @@ import org.springframework.data.jpa.repository.Query;
 public interface UserRepository extends JpaRepository<User, UUID> {
   Optional<User> findByUsername(String username);
 
-  @Query("SELECT u FROM User u WHERE LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%'))")
-  List<User> searchByUsername(String query);
+  @Query("SELECT new com.echoproject.echo.user.dto.UserSummaryResponse(u.id, u.username, p.fullName, p.profilePicture) "
+      + "FROM User u LEFT JOIN u.profile p WHERE u.id IN :ids")
+  List<UserSummaryResponse> findSummariesByIdIn(Collection<UUID> ids);
+
+  // Each UNION branch is served by its pg_trgm GIN index; prefix matches rank first, then similarity.
+  @Query(value = "SELECT u.id AS \"id\", u.username AS \"username\", p.full_name AS \"fullName\", p.profile_picture AS \"profilePicture\" "
+      + "FROM users u LEFT JOIN user_profiles p ON p.user_id = u.id "
+      + "WHERE u.id IN ("
+      + "  SELECT id FROM users WHERE LOWER(username) LIKE :pattern "
+      + "  UNION SELECT user_id FROM user_profiles WHERE LOWER(full_name) LIKE :pattern) "
+      + "AND u.id NOT IN (:excludeIds) "
+      + "ORDER BY LOWER(u.username) = :query DESC, "
+      + "  LOWER(u.username) LIKE :prefix DESC, "
+      + "  GREATEST(similarity(LOWER(u.username), :query), similarity(COALESCE(LOWER(p.full_name), ''), :query)) DESC, "
+      + "  u.username "
+      + "LIMIT :limit", nativeQuery = true)
+  List<UserSummaryProjection> search(String query, String pattern, String prefix, Collection<UUID> excludeIds, int limit);
 }
 
@@ -0,0 +1,10 @@
+package com.echoproject.echo.user.repository;
+
+import java.util.UUID;
+
+public interface UserSummaryProjection {
+  UUID getId();
+  String getUsername();
+  String getFullName();
+  String getProfilePicture();
+}
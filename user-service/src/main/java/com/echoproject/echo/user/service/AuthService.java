@@ -1,6 +1,7 @@
 package com.echoproject.echo.user.service;
 
 import com.echoproject.echo.common.util.JwtUtil;
+import com.echoproject.echo.security.service.PasswordHasher;
 import com.echoproject.echo.user.dto.AuthResponse;
 import com.echoproject.echo.user.dto.LoginRequest;
 import com.echoproject.echo.user.dto.RegisterRequest;
@@ -9,25 +10,24 @@ import com.echoproject.echo.user.models.UserProfile;
 import com.echoproject.echo.user.repository.UserRepository;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
 public class AuthService {
 
   private final UserRepository userRepository;
-  private final PasswordEncoder passwordEncoder;
+  private final PasswordHasher passwordHasher;
   private final JwtUtil jwtUtil;
 
-  @Transactional
+  // Not transactional: the lookup and the save each use their own short transaction so no
+  // connection is held while the password is hashed.
   public AuthResponse register(RegisterRequest request) {
     Optional<User> existing = userRepository.findByUsername(request.getUsername());
     if (existing.isPresent()) {
       throw new IllegalArgumentException("Username already exists");
     }
-    User user = new User(request.getUsername(), passwordEncoder.encode(request.getPassword()));
+    User user = new User(request.getUsername(), passwordHasher.encode(request.getPassword()));
     UserProfile profile = new UserProfile(user);
     if (request.getFullName() != null && !request.getFullName().isBlank()) {
       profile.setFullName(request.getFullName());
@@ -38,10 +38,9 @@ public class AuthService {
     return new AuthResponse(token, user.getUsername());
   }
 
-  @Transactional(readOnly = true)
   public AuthResponse login(LoginRequest request) {
     User user = userRepository.findByUsername(request.getUsername()).orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
-    if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+    if (!passwordHasher.matches(request.getPassword(), user.getPassword())) {
       throw new IllegalArgumentException("Invalid credentials");
     }
     return new AuthResponse(jwtUtil.generateToken(user.getUsername()), user.getUsername());
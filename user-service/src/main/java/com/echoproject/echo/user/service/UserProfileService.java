@@ -9,6 +9,9 @@ import com.echoproject.echo.user.models.UserProfile;
 import com.echoproject.echo.user.repository.UserProfileRepository;
 import com.echoproject.echo.user.repository.UserRepository;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,6 +19,10 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 @RequiredArgsConstructor
 public class UserProfileService {
+  private static final int SEARCH_LIMIT = 10;
+  private static final int MAX_SEARCH_LIMIT = 50;
+  private static final UUID NO_USER = new UUID(0, 0);
+
   private final UserRepository userRepository;
   private final UserProfileRepository profileRepository;
 
@@ -42,15 +49,26 @@ public class UserProfileService {
 
   @Transactional(readOnly = true)
   public List<UserSearchResponse> searchUsers(String query) {
+    return searchUsers(query, Set.of(), SEARCH_LIMIT);
+  }
+
+  @Transactional(readOnly = true)
+  public List<UserSearchResponse> searchUsers(String query, Set<UUID> excludeIds, int limit) {
     if (query == null || query.isBlank()) return List.of();
-    return userRepository.searchByUsername(query.trim()).stream()
-        .map(u -> new UserSearchResponse(u.getId(), u.getUsername(),
-            u.getProfile() != null ? u.getProfile().getFullName() : null,
-            u.getProfile() != null ? u.getProfile().getProfilePicture() : null))
-        .limit(10)
+    String normalized = query.trim().toLowerCase(Locale.ROOT);
+    String escaped = escapeLike(normalized);
+    // NOT IN () is invalid SQL, so an empty exclusion set is replaced by an id no user has
+    Set<UUID> excluded = excludeIds == null || excludeIds.isEmpty() ? Set.of(NO_USER) : excludeIds;
+    int boundedLimit = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+    return userRepository.search(normalized, "%" + escaped + "%", escaped + "%", excluded, boundedLimit).stream()
+        .map(u -> new UserSearchResponse(u.getId(), u.getUsername(), u.getFullName(), u.getProfilePicture()))
         .toList();
   }
 
+  private static String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
   private UserProfileResponse toResponse(UserProfile profile) {
     return new UserProfileResponse(
         profile.getUser().getId(),
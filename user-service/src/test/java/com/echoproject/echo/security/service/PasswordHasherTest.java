@@ -0,0 +1,68 @@
+package com.echoproject.echo.security.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.echoproject.echo.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class PasswordHasherTest {
+
+  @Test
+  void rejectsWhenPoolAndQueueAreFull() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    PasswordEncoder blocking = new PasswordEncoder() {
+      @Override
+      public String encode(CharSequence raw) {
+        started.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return "hash:" + raw;
+      }
+
+      @Override
+      public boolean matches(CharSequence raw, String encoded) {
+        return encode(raw).equals(encoded);
+      }
+    };
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    PasswordHasher hasher = new PasswordHasher(blocking, registry, 1, 1, 3);
+    try {
+      CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.encode("a"));
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+      CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.encode("b"));
+      awaitQueued(registry, 1);
+
+      assertThatThrownBy(() -> hasher.encode("c"))
+          .isInstanceOf(ServiceBusyException.class)
+          .extracting("retryAfterSeconds").isEqualTo(3L);
+
+      release.countDown();
+      assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash:a");
+      assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash:b");
+    } finally {
+      release.countDown();
+      hasher.destroy();
+    }
+  }
+
+  // The only hashing thread is parked in the stub, so the queue only changes when "b" is submitted.
+  private static void awaitQueued(SimpleMeterRegistry registry, int tasks) {
+    Gauge queued = registry.get("executor.queued").tag("name", "auth.hashing").gauge();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (queued.value() < tasks) {
+      if (System.nanoTime() > deadline) throw new AssertionError("task was never queued");
+      Thread.onSpinWait();
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package com.echoproject.echo.common.blob;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Copy/insert delta between two byte arrays. Both sides are cut with small content-defined chunks
+// and every target chunk found in the base becomes a copy, so an edit costs roughly its own size
+// plus a chunk on either side. Adjacent copies and inserts are merged.
+//
+// Layout: format byte, base length, target length, then ops of
+//   COPY   [0][base offset][length]
+//   INSERT [1][length][bytes]
+public final class BinaryDelta {
+
+  private static final byte FORMAT = 1;
+  private static final byte COPY = 0;
+  private static final byte INSERT = 1;
+
+  private static final ContentDefinedChunker CHUNKER = new ContentDefinedChunker(64, 256, 4096);
+
+  private BinaryDelta() {}
+
+  public static byte[] encode(byte[] base, byte[] target) {
+    Map<Long, Integer> index = indexChunks(base);
+    Ops ops = new Ops(base.length, target.length);
+    int start = 0;
+    for (int end : CHUNKER.cutPoints(target)) {
+      Integer offset = index.get(fingerprint(target, start, end));
+      int length = end - start;
+      if (offset != null && offset + length <= base.length
+          && Arrays.equals(base, offset, offset + length, target, start, end)) {
+        ops.copy(offset, length);
+      } else {
+        ops.insert(target, start, length);
+      }
+      start = end;
+    }
+    return ops.finish();
+  }
+
+  public static byte[] apply(byte[] base, byte[] delta) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta))) {
+      if (in.readByte() != FORMAT) throw new IllegalArgumentException("Unknown delta format");
+      if (in.readInt() != base.length) throw new IllegalArgumentException("Delta was encoded against another base");
+      byte[] target = new byte[in.readInt()];
+      int position = 0;
+      while (position < target.length) {
+        byte op = in.readByte();
+        if (op == COPY) {
+          int offset = in.readInt();
+          int length = in.readInt();
+          System.arraycopy(base, offset, target, position, length);
+          position += length;
+        } else if (op == INSERT) {
+          int length = in.readInt();
+          in.readFully(target, position, length);
+          position += length;
+        } else {
+          throw new IllegalArgumentException("Corrupt delta op " + op);
+        }
+      }
+      return target;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Truncated delta", e);
+    }
+  }
+
+  private static Map<Long, Integer> indexChunks(byte[] base) {
+    Map<Long, Integer> index = new HashMap<>();
+    int start = 0;
+    for (int end : CHUNKER.cutPoints(base)) {
+      index.putIfAbsent(fingerprint(base, start, end), start);
+      start = end;
+    }
+    return index;
+  }
+
+  // 64-bit FNV-1a with the length mixed in; matches are confirmed byte for byte.
+  private static long fingerprint(byte[] data, int from, int to) {
+    long hash = 0xcbf29ce484222325L ^ (to - from);
+    for (int i = from; i < to; i++) {
+      hash ^= data[i] & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private static class Ops {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final ByteArrayOutputStream pendingInsert = new ByteArrayOutputStream();
+    private int copyOffset = -1;
+    private int copyLength;
+
+    Ops(int baseLength, int targetLength) {
+      try {
+        out.writeByte(FORMAT);
+        out.writeInt(baseLength);
+        out.writeInt(targetLength);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void copy(int offset, int length) {
+      flushInsert();
+      if (copyOffset >= 0 && copyOffset + copyLength == offset) {
+        copyLength += length;
+        return;
+      }
+      flushCopy();
+      copyOffset = offset;
+      copyLength = length;
+    }
+
+    void insert(byte[] data, int offset, int length) {
+      flushCopy();
+      pendingInsert.write(data, offset, length);
+    }
+
+    byte[] finish() {
+      flushCopy();
+      flushInsert();
+      return bytes.toByteArray();
+    }
+
+    private void flushCopy() {
+      if (copyOffset < 0) return;
+      try {
+        out.writeByte(COPY);
+        out.writeInt(copyOffset);
+        out.writeInt(copyLength);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      copyOffset = -1;
+    }
+
+    private void flushInsert() {
+      if (pendingInsert.size() == 0) return;
+      try {
+        out.writeByte(INSERT);
+        out.writeInt(pendingInsert.size());
+        pendingInsert.writeTo(out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      pendingInsert.reset();
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.echoproject.echo.common.blob;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class BlobGarbageCollector {
+
+  private final BlobStore blobStore;
+  private final int batchSize;
+
+  public BlobGarbageCollector(BlobStore blobStore, @Value("${blob.gc.batch-size:500}") int batchSize) {
+    this.blobStore = blobStore;
+    this.batchSize = batchSize;
+  }
+
+  // Batches run in their own transactions; a full batch means more may be waiting.
+  @Scheduled(fixedDelayString = "${blob.gc.interval:PT5M}")
+  public void collect() {
+    int deleted;
+    long total = 0;
+    do {
+      deleted = blobStore.collectGarbage(batchSize);
+      total += deleted;
+    } while (deleted >= batchSize);
+    if (total > 0) log.debug("Blob garbage collection removed {} rows", total);
+  }
+}
@@ -0,0 +1,219 @@
+package com.echoproject.echo.common.blob;
+
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.common.exception.NotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+// Content-addressed storage. A blob is keyed by the SHA-256 of its raw bytes and holds a manifest
+// of chunk digests; chunks are keyed the same way and stored codec-encoded. A blob's ref_count is
+// the number of rows pointing at it, a chunk's is the number of blobs listing it. Rows that drop
+// to zero are only removed by collectGarbage(), so a put racing a release never loses data.
+@Component
+public class BlobStore {
+
+  private static final int DIGEST_BYTES = 32;
+
+  private static final String UPSERT_BLOB = "INSERT INTO blobs (hash, manifest, raw_length, ref_count, created_at) "
+      + "VALUES (?, ?, ?, 1, now()) ON CONFLICT (hash) DO UPDATE SET ref_count = blobs.ref_count + 1 "
+      + "RETURNING (xmax = 0)";
+  private static final String REFERENCE_CHUNK = "UPDATE blob_chunks SET ref_count = ref_count + 1 WHERE hash = ?";
+  private static final String INSERT_CHUNK = "INSERT INTO blob_chunks (hash, data, raw_length, ref_count, created_at) "
+      + "VALUES (?, ?, ?, 1, now()) ON CONFLICT (hash) DO UPDATE SET ref_count = blob_chunks.ref_count + 1";
+  private static final String RELEASE_CHUNK = "UPDATE blob_chunks SET ref_count = ref_count - ? WHERE hash = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ContentCompressor compressor;
+  private final ContentDefinedChunker chunker;
+  private final Counter newBlobs;
+  private final Counter sharedBlobs;
+  private final Counter newChunks;
+  private final Counter sharedChunks;
+  private final Counter newChunkBytes;
+  private final Counter sharedChunkBytes;
+  private final Counter collectedBlobs;
+  private final Counter collectedChunks;
+
+  public BlobStore(
+      JdbcTemplate jdbcTemplate,
+      ContentCompressor compressor,
+      MeterRegistry meterRegistry,
+      @Value("${blob.chunk.min-size:2KB}") DataSize minChunk,
+      @Value("${blob.chunk.average-size:8KB}") DataSize averageChunk,
+      @Value("${blob.chunk.max-size:64KB}") DataSize maxChunk) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.compressor = compressor;
+    this.chunker = new ContentDefinedChunker(
+        (int) minChunk.toBytes(), (int) averageChunk.toBytes(), (int) maxChunk.toBytes());
+    this.newBlobs = Counter.builder("blob.puts").tag("result", "new").register(meterRegistry);
+    this.sharedBlobs = Counter.builder("blob.puts").tag("result", "shared").register(meterRegistry);
+    this.newChunks = Counter.builder("blob.chunks").tag("result", "new").register(meterRegistry);
+    this.sharedChunks = Counter.builder("blob.chunks").tag("result", "shared").register(meterRegistry);
+    this.newChunkBytes = Counter.builder("blob.chunk.bytes").tag("result", "new").baseUnit("bytes").register(meterRegistry);
+    this.sharedChunkBytes = Counter.builder("blob.chunk.bytes").tag("result", "shared").baseUnit("bytes").register(meterRegistry);
+    this.collectedBlobs = Counter.builder("blob.gc.deleted").tag("kind", "blob").register(meterRegistry);
+    this.collectedChunks = Counter.builder("blob.gc.deleted").tag("kind", "chunk").register(meterRegistry);
+  }
+
+  // Stores raw content, or takes one more reference on an identical blob, and returns its key.
+  // Must run in the caller's transaction so the reference commits with the row that holds it.
+  @Transactional(propagation = Propagation.MANDATORY)
+  public String put(byte[] raw) {
+    if (raw == null || raw.length == 0) throw new IllegalArgumentException("Blob content must not be empty");
+    int[] cuts = chunker.cutPoints(raw);
+    byte[] manifest = new byte[cuts.length * DIGEST_BYTES];
+    // Sorted so concurrent puts take chunk row locks in the same order.
+    Map<String, int[]> distinct = new TreeMap<>();
+    MessageDigest whole = newDigest();
+    whole.update(raw);
+    int start = 0;
+    for (int i = 0; i < cuts.length; i++) {
+      MessageDigest digest = newDigest();
+      digest.update(raw, start, cuts[i] - start);
+      byte[] chunkDigest = digest.digest();
+      System.arraycopy(chunkDigest, 0, manifest, i * DIGEST_BYTES, DIGEST_BYTES);
+      distinct.putIfAbsent(HexFormat.of().formatHex(chunkDigest), new int[] {start, cuts[i]});
+      start = cuts[i];
+    }
+    String blobHash = HexFormat.of().formatHex(whole.digest());
+
+    Boolean inserted = jdbcTemplate.queryForObject(UPSERT_BLOB, Boolean.class, blobHash, manifest, (long) raw.length);
+    if (!Boolean.TRUE.equals(inserted)) {
+      sharedBlobs.increment();
+      return blobHash;
+    }
+    newBlobs.increment();
+    referenceChunks(raw, distinct);
+    return blobHash;
+  }
+
+  public byte[] read(String blobHash) {
+    List<byte[]> manifests = jdbcTemplate.queryForList("SELECT manifest FROM blobs WHERE hash = ?", byte[].class, blobHash);
+    if (manifests.isEmpty()) throw new NotFoundException("Blob not found");
+    byte[] manifest = manifests.get(0);
+    String[] order = new String[manifest.length / DIGEST_BYTES];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = HexFormat.of().formatHex(manifest, i * DIGEST_BYTES, (i + 1) * DIGEST_BYTES);
+    }
+
+    Map<String, byte[]> chunks = new HashMap<>();
+    jdbcTemplate.query(con -> {
+      PreparedStatement ps = con.prepareStatement("SELECT hash, data FROM blob_chunks WHERE hash = ANY(?)");
+      ps.setArray(1, con.createArrayOf("varchar", order));
+      return ps;
+    }, rs -> {
+      chunks.put(rs.getString(1), compressor.decode(rs.getBytes(2)));
+    });
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (String hash : order) {
+      byte[] chunk = chunks.get(hash);
+      if (chunk == null) throw new IllegalStateException("Blob " + blobHash + " is missing chunk " + hash);
+      out.writeBytes(chunk);
+    }
+    return out.toByteArray();
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void release(String blobHash) {
+    jdbcTemplate.update("UPDATE blobs SET ref_count = ref_count - 1 WHERE hash = ?", blobHash);
+  }
+
+  // Raw bytes of those blobs nothing references any more, which the next collection frees.
+  public long unreferencedBytes(Set<String> blobHashes) {
+    if (blobHashes.isEmpty()) return 0;
+    String[] hashes = blobHashes.toArray(String[]::new);
+    Long bytes = jdbcTemplate.query(con -> {
+      PreparedStatement ps = con.prepareStatement(
+          "SELECT COALESCE(SUM(raw_length), 0) FROM blobs WHERE hash = ANY(?) AND ref_count <= 0");
+      ps.setArray(1, con.createArrayOf("varchar", hashes));
+      return ps;
+    }, rs -> rs.next() ? rs.getLong(1) : 0L);
+    return bytes != null ? bytes : 0;
+  }
+
+  // Deletes up to limit unreferenced blobs, drops their chunk references, then deletes up to limit
+  // unreferenced chunks. Rows a concurrent put has locked are skipped until the next pass.
+  @Transactional
+  public int collectGarbage(int limit) {
+    List<byte[]> manifests = jdbcTemplate.queryForList(
+        "DELETE FROM blobs WHERE hash IN (SELECT hash FROM blobs WHERE ref_count <= 0 LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "AND ref_count <= 0 RETURNING manifest",
+        byte[].class, limit);
+    Map<String, Integer> released = new TreeMap<>();
+    for (byte[] manifest : manifests) {
+      for (String hash : distinctChunks(manifest)) released.merge(hash, 1, Integer::sum);
+    }
+    if (!released.isEmpty()) {
+      List<Object[]> args = new ArrayList<>(released.size());
+      released.forEach((hash, count) -> args.add(new Object[] {count, hash}));
+      jdbcTemplate.batchUpdate(RELEASE_CHUNK, args);
+    }
+    int chunks = jdbcTemplate.update(
+        "DELETE FROM blob_chunks WHERE hash IN (SELECT hash FROM blob_chunks WHERE ref_count <= 0 LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "AND ref_count <= 0",
+        limit);
+    collectedBlobs.increment(manifests.size());
+    collectedChunks.increment(chunks);
+    return manifests.size() + chunks;
+  }
+
+  private void referenceChunks(byte[] raw, Map<String, int[]> distinct) {
+    List<String> hashes = new ArrayList<>(distinct.keySet());
+    List<Object[]> args = new ArrayList<>(hashes.size());
+    for (String hash : hashes) args.add(new Object[] {hash});
+    int[] updated = jdbcTemplate.batchUpdate(REFERENCE_CHUNK, args);
+
+    List<Object[]> missing = new ArrayList<>();
+    for (int i = 0; i < hashes.size(); i++) {
+      int[] range = distinct.get(hashes.get(i));
+      int length = range[1] - range[0];
+      if (updated[i] > 0) {
+        sharedChunks.increment();
+        sharedChunkBytes.increment(length);
+        continue;
+      }
+      byte[] chunk = new byte[length];
+      System.arraycopy(raw, range[0], chunk, 0, length);
+      missing.add(new Object[] {hashes.get(i), compressor.encode(chunk), length});
+      newChunks.increment();
+      newChunkBytes.increment(length);
+    }
+    // ON CONFLICT covers a concurrent put inserting the same chunk between the two batches.
+    if (!missing.isEmpty()) jdbcTemplate.batchUpdate(INSERT_CHUNK, missing);
+  }
+
+  private static Set<String> distinctChunks(byte[] manifest) {
+    Set<String> hashes = new LinkedHashSet<>();
+    for (int i = 0; i + DIGEST_BYTES <= manifest.length; i += DIGEST_BYTES) {
+      hashes.add(HexFormat.of().formatHex(manifest, i, i + DIGEST_BYTES));
+    }
+    return hashes;
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.echoproject.echo.common.blob;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Gear-hash content-defined chunking (the FastCDC rolling hash without normalisation). Cut points
+// depend only on the surrounding bytes, so an edit moves at most the chunk boundaries next to it
+// and every other chunk keeps its hash.
+public final class ContentDefinedChunker {
+
+  // Fixed seed: changing the table changes every cut point and defeats dedup against stored chunks.
+  private static final long[] GEAR = gearTable(0x5EED_C0DEL);
+
+  private final int minSize;
+  private final int maxSize;
+  private final long mask;
+
+  public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+    if (minSize <= 0 || minSize > averageSize || averageSize > maxSize) {
+      throw new IllegalArgumentException("Expected 0 < min <= average <= max chunk size");
+    }
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    int bits = 31 - Integer.numberOfLeadingZeros(averageSize);
+    // High bits, because the gear hash shifts left and they mix in the most recent bytes.
+    this.mask = ((1L << bits) - 1) << (Long.SIZE - bits);
+  }
+
+  // End offsets (exclusive) of each chunk; the last one is always data.length.
+  public int[] cutPoints(byte[] data) {
+    int[] cuts = new int[Math.max(4, data.length / Math.max(1, minSize) + 1)];
+    int count = 0;
+    int start = 0;
+    while (start < data.length) {
+      int end = nextCut(data, start);
+      if (count == cuts.length) cuts = Arrays.copyOf(cuts, count * 2);
+      cuts[count++] = end;
+      start = end;
+    }
+    return Arrays.copyOf(cuts, count);
+  }
+
+  private int nextCut(byte[] data, int start) {
+    int remaining = data.length - start;
+    if (remaining <= minSize) return data.length;
+    int limit = start + Math.min(remaining, maxSize);
+    long hash = 0;
+    for (int i = start + minSize; i < limit; i++) {
+      hash = (hash << 1) + GEAR[data[i] & 0xff];
+      if ((hash & mask) == 0) return i + 1;
+    }
+    return limit;
+  }
+
+  private static long[] gearTable(long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    long[] table = new long[256];
+    for (int i = 0; i < table.length; i++) table[i] = random.nextLong();
+    return table;
+  }
+}
@@ -0,0 +1,25 @@
+package com.echoproject.echo.common.compression;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Hibernate resolves converters through the Spring bean container, so the compressor is injected.
+@Component
+@Converter
+@RequiredArgsConstructor
+public class CompressedContentConverter implements AttributeConverter<byte[], byte[]> {
+
+  private final ContentCompressor compressor;
+
+  @Override
+  public byte[] convertToDatabaseColumn(byte[] attribute) {
+    return compressor.encode(attribute);
+  }
+
+  @Override
+  public byte[] convertToEntityAttribute(byte[] dbData) {
+    return compressor.decode(dbData);
+  }
+}
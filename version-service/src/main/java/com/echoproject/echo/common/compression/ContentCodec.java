@@ -0,0 +1,110 @@
+package com.echoproject.echo.common.compression;
+
+import com.github.luben.zstd.Zstd;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import net.jpountz.lz4.LZ4Factory;
+
+// The id is persisted as the first byte of every stored blob, so ids must never be reused.
+public enum ContentCodec {
+  NONE(0) {
+    @Override
+    byte[] compress(byte[] raw) {
+      return raw;
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      byte[] raw = new byte[rawLength];
+      System.arraycopy(stored, offset, raw, 0, rawLength);
+      return raw;
+    }
+  },
+  DEFLATE(1) {
+    @Override
+    byte[] compress(byte[] raw) {
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+      try {
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+          out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return out.toByteArray();
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(stored, offset, stored.length - offset);
+        byte[] raw = new byte[rawLength];
+        int read = 0;
+        while (read < rawLength && !inflater.finished()) {
+          int n = inflater.inflate(raw, read, rawLength - read);
+          if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+          read += n;
+        }
+        if (read != rawLength) throw new IllegalStateException("Truncated deflate content");
+        return raw;
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("Corrupt deflate content", e);
+      } finally {
+        inflater.end();
+      }
+    }
+  },
+  ZSTD(2) {
+    @Override
+    byte[] compress(byte[] raw) {
+      return Zstd.compress(raw, 3);
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      byte[] raw = new byte[rawLength];
+      long n = Zstd.decompressByteArray(raw, 0, rawLength, stored, offset, stored.length - offset);
+      if (Zstd.isError(n) || n != rawLength) throw new IllegalStateException("Corrupt zstd content");
+      return raw;
+    }
+  },
+  LZ4(3) {
+    @Override
+    byte[] compress(byte[] raw) {
+      return LZ4Factory.fastestInstance().fastCompressor().compress(raw);
+    }
+
+    @Override
+    byte[] decompress(byte[] stored, int offset, int rawLength) {
+      return LZ4Factory.fastestInstance().fastDecompressor().decompress(stored, offset, rawLength);
+    }
+  };
+
+  private final byte id;
+
+  ContentCodec(int id) {
+    this.id = (byte) id;
+  }
+
+  public byte id() {
+    return id;
+  }
+
+  abstract byte[] compress(byte[] raw);
+
+  abstract byte[] decompress(byte[] stored, int offset, int rawLength);
+
+  public static ContentCodec fromId(byte id) {
+    for (ContentCodec codec : values()) {
+      if (codec.id == id) return codec;
+    }
+    throw new IllegalStateException("Unknown content codec " + id);
+  }
+}
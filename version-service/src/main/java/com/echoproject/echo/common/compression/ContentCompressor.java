@@ -0,0 +1,109 @@
+package com.echoproject.echo.common.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Stored layout: one codec byte, then for compressed codecs a 4-byte raw length and the
+// compressed body, or for NONE the raw bytes. Rows are decoded by their own header, so changing
+// the configured codec never strands existing data.
+@Component
+public class ContentCompressor {
+
+  private static final int LENGTH_BYTES = Integer.BYTES;
+
+  private final ContentCodec codec;
+  private final int minSize;
+  private final Map<ContentCodec, CodecMeters> meters = new EnumMap<>(ContentCodec.class);
+
+  public ContentCompressor(
+      MeterRegistry meterRegistry,
+      @Value("${content.compression.codec:zstd}") String codec,
+      @Value("${content.compression.min-size:256}") int minSize) {
+    this.codec = ContentCodec.valueOf(codec.trim().toUpperCase(Locale.ROOT));
+    this.minSize = minSize;
+    for (ContentCodec c : ContentCodec.values()) {
+      meters.put(c, new CodecMeters(meterRegistry, c));
+    }
+  }
+
+  public ContentCodec getCodec() {
+    return codec;
+  }
+
+  public byte[] encode(byte[] raw) {
+    if (raw == null || raw.length == 0) return raw;
+    if (codec == ContentCodec.NONE || raw.length < minSize) return withNoneHeader(raw);
+
+    CodecMeters m = meters.get(codec);
+    long start = System.nanoTime();
+    byte[] body = codec.compress(raw);
+    m.encode.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    // Incompressible input is kept as-is rather than paying for a decode that saves nothing.
+    if (body.length + LENGTH_BYTES >= raw.length) return withNoneHeader(raw);
+
+    byte[] stored = ByteBuffer.allocate(1 + LENGTH_BYTES + body.length)
+        .put(codec.id())
+        .putInt(raw.length)
+        .put(body)
+        .array();
+    m.rawBytes.increment(raw.length);
+    m.storedBytes.increment(stored.length);
+    m.ratio.record((double) raw.length / stored.length);
+    return stored;
+  }
+
+  public byte[] decode(byte[] stored) {
+    if (stored == null || stored.length == 0) return stored;
+    ContentCodec storedCodec = codecOf(stored);
+    if (storedCodec == ContentCodec.NONE) return ContentCodec.NONE.decompress(stored, 1, stored.length - 1);
+
+    int rawLength = ByteBuffer.wrap(stored, 1, LENGTH_BYTES).getInt();
+    CodecMeters m = meters.get(storedCodec);
+    long start = System.nanoTime();
+    byte[] raw = storedCodec.decompress(stored, 1 + LENGTH_BYTES, rawLength);
+    m.decode.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return raw;
+  }
+
+  public ContentCodec codecOf(byte[] stored) {
+    return ContentCodec.fromId(stored[0]);
+  }
+
+  private byte[] withNoneHeader(byte[] raw) {
+    byte[] stored = new byte[raw.length + 1];
+    stored[0] = ContentCodec.NONE.id();
+    System.arraycopy(raw, 0, stored, 1, raw.length);
+    meters.get(ContentCodec.NONE).rawBytes.increment(raw.length);
+    meters.get(ContentCodec.NONE).storedBytes.increment(stored.length);
+    return stored;
+  }
+
+  private static class CodecMeters {
+    final Timer encode;
+    final Timer decode;
+    final Counter rawBytes;
+    final Counter storedBytes;
+    final DistributionSummary ratio;
+
+    CodecMeters(MeterRegistry registry, ContentCodec codec) {
+      String name = codec.name().toLowerCase(Locale.ROOT);
+      encode = Timer.builder("content.codec").tag("codec", name).tag("op", "encode").register(registry);
+      decode = Timer.builder("content.codec").tag("codec", name).tag("op", "decode").register(registry);
+      rawBytes = Counter.builder("content.compression.bytes").tag("codec", name).tag("kind", "raw")
+          .baseUnit("bytes").register(registry);
+      storedBytes = Counter.builder("content.compression.bytes").tag("codec", name).tag("kind", "stored")
+          .baseUnit("bytes").register(registry);
+      ratio = DistributionSummary.builder("content.compression.ratio").tag("codec", name).register(registry);
+    }
+  }
+}
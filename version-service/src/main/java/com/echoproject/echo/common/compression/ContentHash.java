@@ -0,0 +1,20 @@
+package com.echoproject.echo.common.compression;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Hash of the raw (decoded) content, so it is stable across codec changes and recompression.
+public final class ContentHash {
+
+  private ContentHash() {}
+
+  public static String of(byte[] raw) {
+    if (raw == null || raw.length == 0) return null;
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(raw));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
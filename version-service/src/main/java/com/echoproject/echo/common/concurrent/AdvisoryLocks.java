@@ -0,0 +1,76 @@
+package com.echoproject.echo.common.concurrent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+// Cluster-wide try-locks on Postgres session advisory locks. A held lock pins one pooled
+// connection until it is closed; if the holder dies, Postgres drops the lock with its session,
+// so nothing has to expire. Keys are (namespace, key) so unrelated users cannot collide.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdvisoryLocks {
+
+  private final DataSource dataSource;
+
+  public Optional<Lock> tryLock(int namespace, int key) {
+    Connection connection = null;
+    try {
+      connection = dataSource.getConnection();
+      connection.setAutoCommit(true);
+      try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+        ps.setInt(1, namespace);
+        ps.setInt(2, key);
+        try (ResultSet rs = ps.executeQuery()) {
+          if (rs.next() && rs.getBoolean(1)) return Optional.of(new Lock(connection, namespace, key));
+        }
+      }
+      connection.close();
+      return Optional.empty();
+    } catch (SQLException e) {
+      closeQuietly(connection);
+      throw new DataAccessResourceFailureException("Could not take advisory lock", e);
+    }
+  }
+
+  private static void closeQuietly(Connection connection) {
+    if (connection == null) return;
+    try {
+      connection.close();
+    } catch (SQLException ignored) {}
+  }
+
+  public static final class Lock implements AutoCloseable {
+    private final Connection connection;
+    private final int namespace;
+    private final int key;
+
+    private Lock(Connection connection, int namespace, int key) {
+      this.connection = connection;
+      this.namespace = namespace;
+      this.key = key;
+    }
+
+    @Override
+    public void close() {
+      try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+        ps.setInt(1, namespace);
+        ps.setInt(2, key);
+        ps.execute();
+      } catch (SQLException e) {
+        // Usually the session is already gone, and the lock with it.
+        log.warn("Advisory unlock failed for ({}, {})", namespace, key, e);
+      } finally {
+        closeQuietly(connection);
+      }
+    }
+  }
+}
@@ -1,11 +1,65 @@
 package com.echoproject.echo.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class AppConfig {
-  @Bean public RestTemplate restTemplate() { return new RestTemplate(); }
-}
 
+  @Bean
+  public PoolingHttpClientConnectionManager internalConnectionManager(
+      MeterRegistry meterRegistry,
+      @Value("${internal.http.max-total:200}") int maxTotal,
+      @Value("${internal.http.max-per-route:50}") int maxPerRoute,
+      @Value("${internal.http.connect-timeout:2s}") Duration connectTimeout,
+      @Value("${internal.http.read-timeout:10s}") Duration readTimeout,
+      @Value("${internal.http.connection-ttl:5m}") Duration connectionTtl) {
+    Timer leaseWait = Timer.builder("internal.http.pool.wait").register(meterRegistry);
+    TimedPoolingConnectionManager manager = new TimedPoolingConnectionManager(leaseWait);
+    manager.setMaxTotal(maxTotal);
+    manager.setDefaultMaxPerRoute(maxPerRoute);
+    manager.setDefaultConnectionConfig(ConnectionConfig.custom()
+        .setConnectTimeout(Timeout.of(connectTimeout))
+        .setSocketTimeout(Timeout.of(readTimeout))
+        .setTimeToLive(TimeValue.of(connectionTtl))
+        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+        .build());
+    new PoolingHttpClientConnectionManagerMetricsBinder(manager, "internal").bindTo(meterRegistry);
+    return manager;
+  }
+
+  @Bean(destroyMethod = "close")
+  public CloseableHttpClient internalHttpClient(
+      PoolingHttpClientConnectionManager internalConnectionManager,
+      @Value("${internal.http.pool-acquire-timeout:2s}") Duration acquireTimeout,
+      @Value("${internal.http.read-timeout:10s}") Duration readTimeout) {
+    return HttpClients.custom()
+        .setConnectionManager(internalConnectionManager)
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.of(acquireTimeout))
+            .setResponseTimeout(Timeout.of(readTimeout))
+            .build())
+        .evictIdleConnections(TimeValue.of(30, TimeUnit.SECONDS))
+        .build();
+  }
+
+  @Bean
+  public RestTemplate restTemplate(CloseableHttpClient internalHttpClient) {
+    return new RestTemplate(new HttpComponentsClientHttpRequestFactory(internalHttpClient));
+  }
+}
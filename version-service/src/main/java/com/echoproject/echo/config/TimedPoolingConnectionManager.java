@@ -0,0 +1,42 @@
+package com.echoproject.echo.config;
+
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.Timeout;
+
+// Records how long callers wait for a pooled connection; the pool itself only exposes counts.
+class TimedPoolingConnectionManager extends PoolingHttpClientConnectionManager {
+
+  private final Timer leaseWait;
+
+  TimedPoolingConnectionManager(Timer leaseWait) {
+    this.leaseWait = leaseWait;
+  }
+
+  @Override
+  public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+    LeaseRequest delegate = super.lease(id, route, requestTimeout, state);
+    long start = System.nanoTime();
+    return new LeaseRequest() {
+      @Override
+      public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+          return delegate.get(timeout);
+        } finally {
+          leaseWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+      }
+
+      @Override
+      public boolean cancel() {
+        return delegate.cancel();
+      }
+    };
+  }
+}
@@ -0,0 +1,21 @@
+package com.echoproject.echo.document.client;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A document's content position as reported by document-service. writtenBytes only ever grows,
+// so the difference between two readings is how much was saved or appended in between.
+public record DocumentActivity(
+    UUID documentId,
+    UUID ownerId,
+    String contentHash,
+    long baseSeq,
+    long headSeq,
+    long writtenBytes,
+    LocalDateTime updatedAt) {
+
+  // Updates not yet folded into the base mean contentHash does not describe the whole content.
+  public boolean hasPendingUpdates() {
+    return headSeq > baseSeq;
+  }
+}
@@ -1,33 +1,75 @@
 package com.echoproject.echo.document.client;
 
+import com.echoproject.echo.security.service.IdentitySignature;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 @Component
 @RequiredArgsConstructor
 public class DocumentServiceClient {
 
   private final RestTemplate restTemplate;
+  private final IdentitySignature identitySignature;
 
   @Value("${document.service.url:http://gateway:8080}")
   private String baseUrl;
 
+  // Background calls carry no user token, so they skip the gateway and sign their own identity.
+  @Value("${document.service.internal-url:http://document-service:8082}")
+  private String internalUrl;
+
   public byte[] getContent(UUID documentId, String authorization) {
     String url = baseUrl + "/api/documents/" + documentId + "/content";
     HttpHeaders headers = new HttpHeaders();
     if (authorization != null) headers.set("Authorization", authorization);
     HttpEntity<Void> entity = new HttpEntity<>(headers);
-    ResponseEntity<byte[]> res = restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, byte[].class);
+    ResponseEntity<byte[]> res = restTemplate.exchange(url, HttpMethod.GET, entity, byte[].class);
     return res.getBody() != null ? res.getBody() : new byte[0];
   }
 
+  public boolean validateAccess(UUID documentId, String authorization) {
+    try {
+      String url = baseUrl + "/api/documents/validate-access";
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      if (authorization != null) headers.set("Authorization", authorization);
+      HttpEntity<Map<String, UUID>> entity = new HttpEntity<>(Map.of("documentId", documentId), headers);
+      ResponseEntity<Map> res = restTemplate.postForEntity(url, entity, Map.class);
+      Object ok = res.getBody() != null ? res.getBody().get("hasAccess") : null;
+      return Boolean.TRUE.equals(ok);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  public Optional<UUID> getOwnerId(UUID documentId, String authorization) {
+    try {
+      String url = baseUrl + "/api/internal/documents/" + documentId + "/owner";
+      HttpHeaders headers = new HttpHeaders();
+      if (authorization != null) headers.set("Authorization", authorization);
+      ResponseEntity<Map> res = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), Map.class);
+      Map body = res.getBody();
+      if (body != null && body.get("ownerId") != null) return Optional.of(UUID.fromString(String.valueOf(body.get("ownerId"))));
+    } catch (Exception ignored) {}
+    return Optional.empty();
+  }
+
   public void overwriteContent(UUID documentId, byte[] state, String authorization) {
     String url = baseUrl + "/api/internal/documents/" + documentId + "/content";
     HttpHeaders headers = new HttpHeaders();
@@ -39,4 +81,33 @@ public class DocumentServiceClient {
       throw new RuntimeException("Failed to overwrite content: status=" + res.getStatusCode());
     }
   }
+
+  public List<DocumentActivity> getActivity(LocalDateTime afterUpdatedAt, UUID afterDocumentId, int limit) {
+    UriComponentsBuilder url = UriComponentsBuilder.fromHttpUrl(internalUrl + "/api/internal/documents/activity")
+        .queryParam("limit", limit);
+    if (afterUpdatedAt != null) url.queryParam("afterUpdatedAt", afterUpdatedAt).queryParam("afterDocumentId", afterDocumentId);
+    URI uri = url.build().toUri();
+    HttpHeaders headers = identityHeaders(IdentitySignature.SERVICE_ACCOUNT_ID, HttpMethod.GET, uri);
+    ResponseEntity<DocumentActivity[]> res = restTemplate.exchange(
+        uri, HttpMethod.GET, new HttpEntity<>(headers), DocumentActivity[].class);
+    return res.getBody() != null ? Arrays.asList(res.getBody()) : List.of();
+  }
+
+  // Reads the content on behalf of userId. Empty when the document is gone or userId has lost access.
+  public Optional<byte[]> getContentAs(UUID documentId, UUID userId) {
+    URI uri = URI.create(internalUrl + "/api/documents/" + documentId + "/content");
+    try {
+      ResponseEntity<byte[]> res = restTemplate.exchange(
+          uri, HttpMethod.GET, new HttpEntity<>(identityHeaders(userId, HttpMethod.GET, uri)), byte[].class);
+      return Optional.of(res.getBody() != null ? res.getBody() : new byte[0]);
+    } catch (HttpClientErrorException.NotFound | HttpClientErrorException.BadRequest e) {
+      return Optional.empty();
+    }
+  }
+
+  private HttpHeaders identityHeaders(UUID userId, HttpMethod method, URI uri) {
+    HttpHeaders headers = new HttpHeaders();
+    identitySignature.apply(headers, userId, IdentitySignature.SERVICE_ACCOUNT_NAME, method.name(), uri.getRawPath());
+    return headers;
+  }
 }
@@ -3,6 +3,7 @@ package com.echoproject.echo.document.controller;
 import com.echoproject.echo.document.dto.CreateVersionRequest;
 import com.echoproject.echo.document.dto.VersionContentResponse;
 import com.echoproject.echo.document.dto.VersionResponse;
+import com.echoproject.echo.document.dto.VersionStorageResponse;
 import com.echoproject.echo.document.service.DocumentVersionService;
 import com.echoproject.echo.security.service.CustomUserDetails;
 import jakarta.validation.Valid;
@@ -34,6 +35,13 @@ public class DocumentVersionController {
     return ResponseEntity.ok(versionService.getDocumentVersions(userDetails.getId(), documentId));
   }
 
+  @GetMapping("/storage")
+  public ResponseEntity<VersionStorageResponse> getVersionStorage(
+      @AuthenticationPrincipal CustomUserDetails userDetails,
+      @PathVariable UUID documentId) {
+    return ResponseEntity.ok(versionService.getVersionStorage(userDetails.getId(), documentId));
+  }
+
   @GetMapping("/{versionId}")
   public ResponseEntity<byte[]> getVersionContent(
       @AuthenticationPrincipal CustomUserDetails userDetails,
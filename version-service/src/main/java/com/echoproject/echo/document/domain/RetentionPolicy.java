@@ -0,0 +1,81 @@
+package com.echoproject.echo.document.domain;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Tiered thinning of a document's history. Each tier covers versions up to maxAge old and keeps
+// the newest version of every interval-long window, all of them when interval is zero. Versions
+// older than the last tier are dropped. Pinned versions (created by a user, or labeled) and the
+// latest version are always kept.
+public final class RetentionPolicy {
+
+  public record Tier(Duration maxAge, Duration interval) {}
+
+  public record VersionStamp(UUID id, LocalDateTime createdAt, boolean pinned) {}
+
+  private final List<Tier> tiers;
+
+  public RetentionPolicy(List<Tier> tiers) {
+    if (tiers.isEmpty()) throw new IllegalArgumentException("Retention needs at least one tier");
+    this.tiers = tiers.stream().sorted(Comparator.comparing(Tier::maxAge)).toList();
+  }
+
+  // "maxAge:interval" pairs of ISO-8601 durations, e.g. "PT1H:PT0S,P1D:PT1H,P30D:P1D".
+  public static RetentionPolicy parse(String spec) {
+    return new RetentionPolicy(Arrays.stream(spec.split(","))
+        .map(String::trim)
+        .filter(s -> !s.isEmpty())
+        .map(s -> {
+          String[] parts = s.split(":");
+          if (parts.length != 2) throw new IllegalArgumentException("Invalid retention tier: " + s);
+          return new Tier(Duration.parse(parts[0]), Duration.parse(parts[1]));
+        })
+        .toList());
+  }
+
+  // Nothing younger than this is ever thinned.
+  public Duration keepAllFor() {
+    Tier first = tiers.get(0);
+    return first.interval().isZero() ? first.maxAge() : Duration.ZERO;
+  }
+
+  public Set<UUID> expired(List<VersionStamp> versions, LocalDateTime now) {
+    Set<UUID> expired = new HashSet<>();
+    UUID latest = versions.stream().max(Comparator.comparing(VersionStamp::createdAt)).map(VersionStamp::id).orElse(null);
+    Map<List<Long>, List<VersionStamp>> windows = new HashMap<>();
+    for (VersionStamp version : versions) {
+      if (version.pinned() || version.id().equals(latest)) continue;
+      int tier = tierOf(Duration.between(version.createdAt(), now));
+      if (tier < 0) {
+        expired.add(version.id());
+        continue;
+      }
+      long interval = tiers.get(tier).interval().toMillis();
+      if (interval <= 0) continue;
+      long window = Math.floorDiv(version.createdAt().toInstant(ZoneOffset.UTC).toEpochMilli(), interval);
+      windows.computeIfAbsent(List.of((long) tier, window), k -> new ArrayList<>()).add(version);
+    }
+    for (List<VersionStamp> window : windows.values()) {
+      window.sort(Comparator.comparing(VersionStamp::createdAt).reversed());
+      window.subList(1, window.size()).forEach(v -> expired.add(v.id()));
+    }
+    return expired;
+  }
+
+  private int tierOf(Duration age) {
+    for (int i = 0; i < tiers.size(); i++) {
+      if (age.compareTo(tiers.get(i).maxAge()) <= 0) return i;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,8 @@
+package com.echoproject.echo.document.domain;
+
+import java.time.Duration;
+
+// When a changed document is due for an automatic snapshot: it has been changing for maxAge,
+// has been quiet for quietPeriod, or has had maxChangedBytes written since the last snapshot.
+// Whichever applies, attempts on one document are at least minInterval apart.
+public record SnapshotPolicy(Duration maxAge, Duration quietPeriod, long maxChangedBytes, Duration minInterval) {}
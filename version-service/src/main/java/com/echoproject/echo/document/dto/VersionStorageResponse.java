@@ -0,0 +1,19 @@
+package com.echoproject.echo.document.dto;
+
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class VersionStorageResponse {
+  private UUID documentId;
+  private long versions;
+  private long keyframes;
+  private long deltas;
+  // Size of every version's full state.
+  private long logicalBytes;
+  // Size of what is actually stored: keyframes in full, deltas at their own size.
+  private long encodedBytes;
+  private long savedBytes;
+}
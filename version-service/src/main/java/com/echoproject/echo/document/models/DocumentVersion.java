@@ -1,5 +1,6 @@
 package com.echoproject.echo.document.models;
 
+import com.echoproject.echo.common.compression.CompressedContentConverter;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -25,23 +26,43 @@ public class DocumentVersion {
   @Column(name = "version_number", nullable = false)
   private Integer versionNumber;
 
-  @Column(name = "state", nullable = false, columnDefinition = "bytea")
+  // Only set on rows written before the blob store; new versions reference a blob instead.
+  @Convert(converter = CompressedContentConverter.class)
+  @Column(name = "state", columnDefinition = "bytea")
   private byte[] state;
 
+  @Column(name = "blob_hash", length = 64)
+  private String blobHash;
+
+  // Set when blobHash holds a delta against that version rather than the full state.
+  @Column(name = "base_version_id")
+  private UUID baseVersionId;
+
+  @Column(name = "raw_length")
+  private Long rawLength;
+
+  // SHA-256 of the full state, whether it is stored as a keyframe or a delta.
+  @Column(name = "content_hash", length = 64)
+  private String contentHash;
+
   @Column(name = "created_by", nullable = false)
   private UUID createdById;
 
   @Column(name = "label")
   private String label;
 
+  // Taken by the snapshot scheduler rather than by a user; only these are thinned by retention.
+  @Column(name = "automatic", nullable = false)
+  private boolean automatic;
+
   @CreationTimestamp
   @Column(name = "created_at", updatable = false)
   private LocalDateTime createdAt;
 
-  public DocumentVersion(UUID documentId, Integer versionNumber, byte[] state, UUID createdById, String label) {
+  public DocumentVersion(UUID documentId, Integer versionNumber, String blobHash, UUID createdById, String label) {
     this.documentId = documentId;
     this.versionNumber = versionNumber;
-    this.state = state;
+    this.blobHash = blobHash;
     this.createdById = createdById;
     this.label = label;
   }
@@ -1,21 +1,99 @@
 package com.echoproject.echo.document.repository;
 
 import com.echoproject.echo.document.models.DocumentVersion;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface DocumentVersionRepository extends JpaRepository<DocumentVersion, UUID> {
-  List<DocumentVersion> findByDocumentIdOrderByVersionNumberDesc(UUID documentId);
+  String SUMMARY = "SELECT v.id AS id, v.documentId AS documentId, v.versionNumber AS versionNumber, v.label AS label, "
+      + "v.createdById AS createdById, v.createdAt AS createdAt, v.blobHash AS blobHash, "
+      + "v.baseVersionId AS baseVersionId, v.rawLength AS rawLength, v.automatic AS automatic FROM DocumentVersion v ";
 
-  @Query("SELECT COUNT(v) FROM DocumentVersion v WHERE v.documentId = :documentId")
-  long countByDocumentId(UUID documentId);
+  // Listing and deletion only need metadata, so these never select the state column.
+  @Query(SUMMARY + "WHERE v.documentId = :documentId ORDER BY v.versionNumber DESC")
+  List<VersionSummary> findSummariesByDocumentId(UUID documentId);
 
-  @Query("SELECT MAX(v.versionNumber) FROM DocumentVersion v WHERE v.documentId = :documentId")
-  Optional<Integer> findMaxVersionNumberByDocumentId(UUID documentId);
+  @Query(SUMMARY + "WHERE v.documentId IN :documentIds")
+  List<VersionSummary> findSummariesByDocumentIdIn(Collection<UUID> documentIds);
 
-  @Query(value = "SELECT * FROM document_versions WHERE document_id = :documentId ORDER BY created_at ASC LIMIT 1", nativeQuery = true)
-  List<DocumentVersion> findOldestVersionsByDocumentId(UUID documentId);
+  @Query(SUMMARY + "WHERE v.id = :id")
+  Optional<VersionSummary> findSummaryById(UUID id);
+
+  // Documents in id order holding an unlabeled automatic version created before olderThan.
+  @Query(value = "SELECT c.document_id FROM document_version_counters c WHERE c.document_id > :afterId "
+      + "AND c.version_count > 1 AND EXISTS (SELECT 1 FROM document_versions v WHERE v.document_id = c.document_id "
+      + "AND v.automatic AND v.created_at < :olderThan AND COALESCE(btrim(v.label), '') = '') "
+      + "ORDER BY c.document_id LIMIT :limit", nativeQuery = true)
+  List<UUID> findRetentionCandidates(UUID afterId, LocalDateTime olderThan, int limit);
+
+  // Null when the document has no versions, or its latest predates content hashes.
+  @Query(value = "SELECT content_hash FROM document_versions WHERE document_id = :documentId "
+      + "ORDER BY version_number DESC LIMIT 1", nativeQuery = true)
+  String findLatestContentHash(UUID documentId);
+
+  @Modifying
+  @Query("DELETE FROM DocumentVersion v WHERE v.id = :id")
+  int deleteVersionById(UUID id);
+
+  @Query(value = "SELECT id FROM document_versions WHERE id > :afterId "
+      + "AND CASE WHEN length(state) > 0 THEN get_byte(state, 0) END <> :codecId ORDER BY id LIMIT :limit", nativeQuery = true)
+  List<UUID> findIdsNotStoredWith(UUID afterId, int codecId, int limit);
+
+  // Native, so the bytes are returned as stored rather than through the entity converter.
+  @Query(value = "SELECT state FROM document_versions WHERE id = :id", nativeQuery = true)
+  byte[] findStoredStateById(UUID id);
+
+  @Query(value = "SELECT id FROM document_versions WHERE id > :afterId AND blob_hash IS NULL ORDER BY id LIMIT :limit", nativeQuery = true)
+  List<UUID> findIdsWithoutBlob(UUID afterId, int limit);
+
+  @Modifying
+  @Query(value = "UPDATE document_versions SET blob_hash = :blobHash, content_hash = :blobHash, raw_length = :rawLength, state = NULL "
+      + "WHERE id = :id AND blob_hash IS NULL", nativeQuery = true)
+  int moveStateToBlob(UUID id, String blobHash, long rawLength);
+
+  @Modifying
+  @Query("UPDATE DocumentVersion v SET v.blobHash = :blobHash, v.baseVersionId = NULL WHERE v.id = :id")
+  int rebaseToKeyframe(UUID id, String blobHash);
+
+  // Logical bytes are the full states; encoded bytes are what the version blobs hold, deltas
+  // counted at their own size. Versions not yet moved into the blob store are left out of both.
+  @Query(value = "SELECT COUNT(*) AS versions, COUNT(*) FILTER (WHERE v.blob_hash IS NOT NULL AND v.base_version_id IS NULL) AS keyframes, "
+      + "COUNT(v.base_version_id) AS deltas, COALESCE(SUM(v.raw_length) FILTER (WHERE b.hash IS NOT NULL), 0) AS logicalBytes, "
+      + "COALESCE(SUM(b.raw_length), 0) AS encodedBytes "
+      + "FROM document_versions v LEFT JOIN blobs b ON b.hash = v.blob_hash WHERE v.document_id = :documentId",
+      nativeQuery = true)
+  VersionStorage findStorageByDocumentId(UUID documentId);
+
+  @Modifying
+  @Transactional
+  @Query(value = "UPDATE document_versions SET state = :newState WHERE id = :id AND state = :oldState", nativeQuery = true)
+  int replaceStoredState(UUID id, byte[] oldState, byte[] newState);
+
+  interface VersionSummary {
+    UUID getId();
+    UUID getDocumentId();
+    Integer getVersionNumber();
+    String getLabel();
+    UUID getCreatedById();
+    LocalDateTime getCreatedAt();
+    String getBlobHash();
+    UUID getBaseVersionId();
+    Long getRawLength();
+    boolean isAutomatic();
+  }
+
+  interface VersionStorage {
+    long getVersions();
+    long getKeyframes();
+    long getDeltas();
+    long getLogicalBytes();
+    long getEncodedBytes();
+  }
 }
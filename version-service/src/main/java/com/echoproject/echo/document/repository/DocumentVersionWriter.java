@@ -0,0 +1,89 @@
+package com.echoproject.echo.document.repository;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Version numbering goes through a counter row per document. The upsert locks that row until
+// commit, so creators of the same document are serialized and can never draw the same number,
+// while creators of different documents do not contend at all.
+@Repository
+@RequiredArgsConstructor
+public class DocumentVersionWriter {
+
+  private static final String INSERT =
+      "WITH counter AS ("
+          + "INSERT INTO document_version_counters (document_id, last_number, version_count) VALUES (?, 1, 1) "
+          + "ON CONFLICT (document_id) DO UPDATE SET last_number = document_version_counters.last_number + 1, "
+          + "version_count = document_version_counters.version_count + 1 "
+          + "RETURNING last_number, version_count), "
+          + "inserted AS ("
+          + "INSERT INTO document_versions (id, document_id, version_number, raw_length, created_by, label, automatic, "
+          + "created_at) SELECT gen_random_uuid(), ?, counter.last_number, ?, ?, ?, ?, now() FROM counter "
+          + "RETURNING id, version_number, created_at) "
+          + "SELECT inserted.id, inserted.version_number, inserted.created_at, counter.version_count "
+          + "FROM inserted, counter";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public record CreatedVersion(UUID id, int versionNumber, LocalDateTime createdAt, int versionCount) {}
+
+  // Numbers and inserts the version in one statement. versionCount includes the new version.
+  // The row is inserted before its content is stored, so everything else the creator does for
+  // this document, its blob writes included, already runs under the counter lock.
+  public CreatedVersion insert(UUID documentId, long rawLength, UUID createdById, String label, boolean automatic) {
+    return jdbcTemplate.queryForObject(INSERT,
+        (rs, row) -> new CreatedVersion(
+            rs.getObject(1, UUID.class), rs.getInt(2), rs.getTimestamp(3).toLocalDateTime(), rs.getInt(4)),
+        documentId, documentId, rawLength, createdById, label, automatic);
+  }
+
+  public void attachContent(UUID versionId, String blobHash, UUID baseVersionId, String contentHash) {
+    jdbcTemplate.update("UPDATE document_versions SET blob_hash = ?, base_version_id = ?, content_hash = ? WHERE id = ?",
+        blobHash, baseVersionId, contentHash, versionId);
+  }
+
+  // created_at is written by the database clock, so version ages are measured against it too.
+  public LocalDateTime databaseTime() {
+    return jdbcTemplate.queryForObject("SELECT localtimestamp", LocalDateTime.class);
+  }
+
+  // Takes the same row locks creators take, in a fixed order, so a bulk compaction never races
+  // a creator's numbering or retention for any of these documents.
+  public void lockCounters(List<UUID> documentIds) {
+    jdbcTemplate.query(con -> {
+      PreparedStatement ps = con.prepareStatement("SELECT document_id FROM document_version_counters "
+          + "WHERE document_id = ANY(?) ORDER BY document_id FOR UPDATE");
+      ps.setArray(1, con.createArrayOf("uuid", documentIds.toArray()));
+      return ps;
+    }, rs -> {});
+  }
+
+  public int deleteVersions(Collection<UUID> versionIds) {
+    return jdbcTemplate.update(con -> {
+      PreparedStatement ps = con.prepareStatement("DELETE FROM document_versions WHERE id = ANY(?)");
+      ps.setArray(1, con.createArrayOf("uuid", versionIds.toArray()));
+      return ps;
+    });
+  }
+
+  public void releaseSlots(Map<UUID, Integer> deletedByDocument) {
+    List<Object[]> args = new ArrayList<>(deletedByDocument.size());
+    deletedByDocument.forEach((documentId, count) -> args.add(new Object[] {count, documentId}));
+    jdbcTemplate.batchUpdate(
+        "UPDATE document_version_counters SET version_count = version_count - ? WHERE document_id = ?", args);
+  }
+
+  // Called for every deleted version so the counter's count stays exact.
+  public void releaseSlot(UUID documentId) {
+    jdbcTemplate.update(
+        "UPDATE document_version_counters SET version_count = version_count - 1 WHERE document_id = ?", documentId);
+  }
+}
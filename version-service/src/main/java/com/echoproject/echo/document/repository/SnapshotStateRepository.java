@@ -0,0 +1,103 @@
+package com.echoproject.echo.document.repository;
+
+import com.echoproject.echo.document.client.DocumentActivity;
+import com.echoproject.echo.document.domain.SnapshotPolicy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+// What the snapshot scheduler knows about each document's content, mirrored from the activity
+// feed of document-service. A document is dirty, with dirty_since set, while more bytes have been
+// written to it than at its last snapshot.
+@Repository
+@RequiredArgsConstructor
+public class SnapshotStateRepository {
+
+  private static final String RECORD =
+      "INSERT INTO document_snapshot_state AS s (document_id, owner_id, content_hash, pending_updates, written_bytes, "
+          + "snapshot_written_bytes, source_updated_at, changed_at, dirty_since) "
+          + "VALUES (?, ?, ?, ?, ?, 0, ?, now(), CASE WHEN ? > 0 THEN now() END) "
+          + "ON CONFLICT (document_id) DO UPDATE SET owner_id = EXCLUDED.owner_id, content_hash = EXCLUDED.content_hash, "
+          + "pending_updates = EXCLUDED.pending_updates, source_updated_at = EXCLUDED.source_updated_at, "
+          + "changed_at = CASE WHEN EXCLUDED.written_bytes <> s.written_bytes THEN now() ELSE s.changed_at END, "
+          + "dirty_since = CASE WHEN EXCLUDED.written_bytes = s.snapshot_written_bytes THEN NULL "
+          + "ELSE coalesce(s.dirty_since, now()) END, "
+          + "written_bytes = EXCLUDED.written_bytes";
+
+  private static final String DUE =
+      "SELECT document_id, owner_id, content_hash, pending_updates, written_bytes FROM document_snapshot_state "
+          + "WHERE dirty_since IS NOT NULL "
+          + "AND (attempted_at IS NULL OR attempted_at <= now() - ? * interval '1 millisecond') "
+          + "AND (dirty_since <= now() - ? * interval '1 millisecond' "
+          + "OR changed_at <= now() - ? * interval '1 millisecond' "
+          + "OR written_bytes - snapshot_written_bytes >= ?) ";
+
+  private static final RowMapper<DueSnapshot> DUE_SNAPSHOT = (rs, row) -> new DueSnapshot(
+      rs.getObject(1, UUID.class), rs.getObject(2, UUID.class), rs.getString(3), rs.getBoolean(4), rs.getLong(5));
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public record Cursor(LocalDateTime updatedAt, UUID documentId) {}
+
+  public record DueSnapshot(UUID documentId, UUID ownerId, String contentHash, boolean pendingUpdates, long writtenBytes) {}
+
+  // Where the next poll starts: overlap before the newest activity recorded so far. updated_at is
+  // taken when a save starts, so a save that commits after a newer one has been polled sorts
+  // behind the cursor; re-reading the overlap catches it, and recording a change twice is harmless.
+  public Optional<Cursor> findCursor(Duration overlap) {
+    Timestamp newest = jdbcTemplate.queryForObject(
+        "SELECT max(source_updated_at) FROM document_snapshot_state", Timestamp.class);
+    return Optional.ofNullable(newest).map(t -> new Cursor(t.toLocalDateTime().minus(overlap), null));
+  }
+
+  public void recordActivity(List<DocumentActivity> activity) {
+    jdbcTemplate.batchUpdate(RECORD, activity, activity.size(), (ps, a) -> {
+      ps.setObject(1, a.documentId());
+      ps.setObject(2, a.ownerId());
+      ps.setString(3, a.contentHash());
+      ps.setBoolean(4, a.hasPendingUpdates());
+      ps.setLong(5, a.writtenBytes());
+      ps.setTimestamp(6, Timestamp.valueOf(a.updatedAt()));
+      ps.setLong(7, a.writtenBytes());
+    });
+  }
+
+  // Longest-dirty first.
+  public List<DueSnapshot> findDue(SnapshotPolicy policy, int limit) {
+    return jdbcTemplate.query(DUE + "ORDER BY dirty_since LIMIT ?", DUE_SNAPSHOT, dueArgs(policy, limit));
+  }
+
+  public Optional<DueSnapshot> findIfDue(UUID documentId, SnapshotPolicy policy) {
+    return jdbcTemplate.query(DUE + "AND document_id = ?", DUE_SNAPSHOT, dueArgs(policy, documentId))
+        .stream().findFirst();
+  }
+
+  public void markAttempted(UUID documentId) {
+    jdbcTemplate.update("UPDATE document_snapshot_state SET attempted_at = now() WHERE document_id = ?", documentId);
+  }
+
+  // writtenBytes is the position the snapshot was taken at; anything written since keeps the document dirty.
+  public void markSnapshotted(UUID documentId, long writtenBytes, boolean created) {
+    jdbcTemplate.update("UPDATE document_snapshot_state SET snapshot_written_bytes = ?, "
+            + "dirty_since = CASE WHEN written_bytes > ? THEN changed_at END, "
+            + "snapshotted_at = CASE WHEN ? THEN now() ELSE snapshotted_at END WHERE document_id = ?",
+        writtenBytes, writtenBytes, created, documentId);
+  }
+
+  public void delete(UUID documentId) {
+    jdbcTemplate.update("DELETE FROM document_snapshot_state WHERE document_id = ?", documentId);
+  }
+
+  private static Object[] dueArgs(SnapshotPolicy policy, Object last) {
+    return new Object[] {
+        policy.minInterval().toMillis(), policy.maxAge().toMillis(), policy.quietPeriod().toMillis(),
+        policy.maxChangedBytes(), last};
+  }
+}
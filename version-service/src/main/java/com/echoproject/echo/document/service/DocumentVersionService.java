@@ -1,13 +1,20 @@
 package com.echoproject.echo.document.service;
 
+import com.echoproject.echo.common.blob.BlobStore;
+import com.echoproject.echo.common.compression.ContentHash;
+import com.echoproject.echo.common.concurrent.ConcurrentCalls;
 import com.echoproject.echo.common.exception.BadRequestException;
 import com.echoproject.echo.common.exception.NotFoundException;
 import com.echoproject.echo.document.domain.DocumentAccessControl;
 import com.echoproject.echo.document.dto.CreateVersionRequest;
 import com.echoproject.echo.document.dto.VersionContentResponse;
 import com.echoproject.echo.document.dto.VersionResponse;
-import com.echoproject.echo.document.models.DocumentVersion;
+import com.echoproject.echo.document.dto.VersionStorageResponse;
 import com.echoproject.echo.document.repository.DocumentVersionRepository;
+import com.echoproject.echo.document.repository.DocumentVersionWriter;
+import com.echoproject.echo.document.repository.DocumentVersionWriter.CreatedVersion;
+import com.echoproject.echo.document.repository.DocumentVersionRepository.VersionStorage;
+import com.echoproject.echo.document.repository.DocumentVersionRepository.VersionSummary;
 import com.echoproject.echo.notification.client.CollaborationServiceClient;
 import com.echoproject.echo.document.client.DocumentServiceClient;
 import com.echoproject.echo.user.client.UserServiceClient;
@@ -21,40 +28,70 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DocumentVersionService {
 
-  private static final int MAX_VERSIONS_PER_DOCUMENT = 15;
-
   private final DocumentVersionRepository versionRepository;
   private final CollaborationServiceClient collabClient;
   private final UserServiceClient userClient;
   private final DocumentServiceClient documentClient;
+  private final ConcurrentCalls concurrentCalls;
+  private final TransactionTemplate transactionTemplate;
+  private final BlobStore blobStore;
+  private final VersionStateStore versionStateStore;
+  private final DocumentVersionWriter versionWriter;
 
-  @Transactional
   public VersionResponse createVersion(UUID userId, UUID documentId, CreateVersionRequest request) {
-    if (!validateAccess(documentId)) throw new BadRequestException("Access denied");
-    // Pull latest content from document-service
-    // Reuse existing endpoints via DocumentServiceClient? For now, read from our DB if still present, else consider adding a GET client
     String auth = getCurrentAuthorization();
-    byte[] state = documentClient.getContent(documentId, auth);
+    byte[] state;
+    String creatorUsername;
+    try (var scope = concurrentCalls.open()) {
+      var access = scope.fork(() -> documentClient.validateAccess(documentId, auth));
+      var content = scope.fork(() -> documentClient.getContent(documentId, auth));
+      var usernames = scope.fork(() -> userClient.getUsernames(Set.of(userId)));
+      scope.join();
+      if (!access.get()) throw new BadRequestException("Access denied");
+      state = content.get();
+      creatorUsername = usernames.get().get(userId);
+    }
     if (state == null || state.length == 0) throw new BadRequestException("Document has no content to version");
-    long versionCount = versionRepository.countByDocumentId(documentId);
-    if (versionCount >= MAX_VERSIONS_PER_DOCUMENT) deleteOldestVersion(documentId);
-    Integer nextVersionNumber = versionRepository.findMaxVersionNumberByDocumentId(documentId).map(max -> max + 1).orElse(1);
-    DocumentVersion version = new DocumentVersion(documentId, nextVersionNumber, state, userId, request.getLabel());
-    versionRepository.save(version);
-    return toVersionResponse(version);
+    CreatedVersion version = storeVersion(documentId, state, userId, request.getLabel(), false);
+    return new VersionResponse(
+        version.id(), documentId, version.versionNumber(), request.getLabel(),
+        creatorUsername,
+        version.createdAt());
+  }
+
+  // Only the version bookkeeping needs a transaction; callers fetch the state outside it. Old
+  // automatic versions are thinned later by VersionRetentionCompactor, not here.
+  public CreatedVersion storeVersion(UUID documentId, byte[] state, UUID createdById, String label, boolean automatic) {
+    String contentHash = ContentHash.of(state);
+    return transactionTemplate.execute(status -> {
+      CreatedVersion created = versionWriter.insert(documentId, state.length, createdById, label, automatic);
+      List<VersionSummary> older = versionRepository.findSummariesByDocumentId(documentId).stream()
+          .filter(v -> !v.getId().equals(created.id()))
+          .toList();
+      var encoded = versionStateStore.encode(state, older);
+      versionWriter.attachContent(created.id(), encoded.blobHash(), encoded.baseVersionId(), contentHash);
+      return created;
+    });
   }
 
-  @Transactional(readOnly = true)
   public List<VersionResponse> getDocumentVersions(UUID userId, UUID documentId) {
-    if (!validateAccess(documentId)) throw new BadRequestException("Access denied");
-    List<DocumentVersion> versions = versionRepository.findByDocumentIdOrderByVersionNumberDesc(documentId);
-    Set<UUID> creatorIds = versions.stream().map(DocumentVersion::getCreatedById).collect(Collectors.toSet());
+    String auth = getCurrentAuthorization();
+    List<VersionSummary> versions;
+    try (var scope = concurrentCalls.open()) {
+      var access = scope.fork(() -> documentClient.validateAccess(documentId, auth));
+      var versionsTask = scope.fork(() -> versionRepository.findSummariesByDocumentId(documentId));
+      scope.join();
+      if (!access.get()) throw new BadRequestException("Access denied");
+      versions = versionsTask.get();
+    }
+    Set<UUID> creatorIds = versions.stream().map(VersionSummary::getCreatedById).collect(Collectors.toSet());
     var usernames = userClient.getUsernames(creatorIds);
     return versions.stream().map(v ->
         new VersionResponse(
@@ -65,14 +102,22 @@ public class DocumentVersionService {
     ).toList();
   }
 
+  public VersionStorageResponse getVersionStorage(UUID userId, UUID documentId) {
+    if (!validateAccess(documentId)) throw new BadRequestException("Access denied");
+    VersionStorage storage = versionRepository.findStorageByDocumentId(documentId);
+    return new VersionStorageResponse(
+        documentId, storage.getVersions(), storage.getKeyframes(), storage.getDeltas(),
+        storage.getLogicalBytes(), storage.getEncodedBytes(), storage.getLogicalBytes() - storage.getEncodedBytes());
+  }
+
   @Transactional(readOnly = true)
   public VersionContentResponse getVersionContent(UUID userId, UUID documentId, UUID versionId) {
     if (!validateAccess(documentId)) throw new BadRequestException("Access denied");
-    DocumentVersion version = versionRepository.findById(versionId).orElseThrow(() -> new NotFoundException("Version not found"));
+    VersionSummary version = versionRepository.findSummaryById(versionId).orElseThrow(() -> new NotFoundException("Version not found"));
     if (!version.getDocumentId().equals(documentId)) throw new BadRequestException("Version does not belong to this document");
     var usernames = userClient.getUsernames(Set.of(version.getCreatedById()));
     return new VersionContentResponse(
-        version.getId(), version.getDocumentId(), version.getVersionNumber(), version.getState(), version.getLabel(),
+        version.getId(), version.getDocumentId(), version.getVersionNumber(), readState(version), version.getLabel(),
         usernames.getOrDefault(version.getCreatedById(), null),
         version.getCreatedAt()
     );
@@ -81,10 +126,10 @@ public class DocumentVersionService {
   @Transactional
   public void restoreVersion(UUID userId, UUID documentId, UUID versionId) {
     if (!validateAccess(documentId)) throw new BadRequestException("Access denied");
-    DocumentVersion version = versionRepository.findById(versionId).orElseThrow(() -> new NotFoundException("Version not found"));
+    VersionSummary version = versionRepository.findSummaryById(versionId).orElseThrow(() -> new NotFoundException("Version not found"));
     if (!version.getDocumentId().equals(documentId)) throw new BadRequestException("Version does not belong to this document");
     String auth = getCurrentAuthorization();
-    documentClient.overwriteContent(documentId, version.getState(), auth);
+    documentClient.overwriteContent(documentId, readState(version), auth);
     TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
       @Override public void afterCommit() { collabClient.reloadDocument(documentId.toString()); }
     });
@@ -95,68 +140,32 @@ public class DocumentVersionService {
     // Verify owner via document-service
     UUID ownerId = getOwnerId(documentId);
     if (!ownerId.equals(userId)) throw new BadRequestException("Only the owner can delete versions");
-    DocumentVersion version = versionRepository.findById(versionId).orElseThrow(() -> new NotFoundException("Version not found"));
+    VersionSummary version = versionRepository.findSummaryById(versionId).orElseThrow(() -> new NotFoundException("Version not found"));
     if (!version.getDocumentId().equals(documentId)) throw new BadRequestException("Version does not belong to this document");
-    versionRepository.delete(version);
-  }
-
-  private void deleteOldestVersion(UUID documentId) {
-    List<DocumentVersion> versions = versionRepository.findOldestVersionsByDocumentId(documentId);
-    if (!versions.isEmpty()) versionRepository.delete(versions.get(0));
+    delete(version);
   }
 
-  private VersionResponse toVersionResponse(DocumentVersion version) {
-    var usernames = userClient.getUsernames(Set.of(version.getCreatedById()));
-    return new VersionResponse(
-        version.getId(),
-        version.getDocumentId(),
-        version.getVersionNumber(),
-        version.getLabel(),
-        usernames.getOrDefault(version.getCreatedById(), null),
-        version.getCreatedAt());
+  private void delete(VersionSummary version) {
+    // Counter first, in the order creators and the compactor lock, before any blob rows.
+    versionWriter.lockCounters(List.of(version.getDocumentId()));
+    versionStateStore.detach(version, versionRepository.findSummariesByDocumentId(version.getDocumentId()));
+    versionRepository.deleteVersionById(version.getId());
+    versionWriter.releaseSlot(version.getDocumentId());
+    if (version.getBlobHash() != null) blobStore.release(version.getBlobHash());
   }
 
-  private VersionContentResponse toVersionContentResponse(DocumentVersion version) {
-    var usernames = userClient.getUsernames(Set.of(version.getCreatedById()));
-    return new VersionContentResponse(
-        version.getId(),
-        version.getDocumentId(),
-        version.getVersionNumber(),
-        version.getState(),
-        version.getLabel(),
-        usernames.getOrDefault(version.getCreatedById(), null),
-        version.getCreatedAt());
+  // Snapshot bytes are only read here, once the version has been checked against the document.
+  private byte[] readState(VersionSummary version) {
+    return versionStateStore.read(version);
   }
 
   private boolean validateAccess(UUID documentId) {
-    try {
-      String auth = getCurrentAuthorization();
-      String url = "http://gateway:8080/api/documents/validate-access";
-      org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-      headers.setContentType(org.springframework.http.MediaType.APPLICATION_JSON);
-      if (auth != null) headers.set("Authorization", auth);
-      var body = java.util.Map.of("documentId", documentId);
-      var entity = new org.springframework.http.HttpEntity<>(body, headers);
-      var rest = new org.springframework.web.client.RestTemplate();
-      var res = rest.postForEntity(url, entity, java.util.Map.class);
-      Object ok = res.getBody() != null ? ((java.util.Map<?,?>)res.getBody()).get("hasAccess") : null;
-      return Boolean.TRUE.equals(ok);
-    } catch (Exception e) { return false; }
+    return documentClient.validateAccess(documentId, getCurrentAuthorization());
   }
 
   private UUID getOwnerId(UUID documentId) {
-    try {
-      String auth = getCurrentAuthorization();
-      String url = "http://gateway:8080/api/internal/documents/" + documentId + "/owner";
-      org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-      if (auth != null) headers.set("Authorization", auth);
-      var entity = new org.springframework.http.HttpEntity<>(headers);
-      var rest = new org.springframework.web.client.RestTemplate();
-      var res = rest.exchange(url, org.springframework.http.HttpMethod.GET, entity, java.util.Map.class);
-      var body = res.getBody();
-      if (body != null && body.get("ownerId") != null) return java.util.UUID.fromString(String.valueOf(body.get("ownerId")));
-    } catch (Exception ignored) {}
-    throw new NotFoundException("Document not found");
+    return documentClient.getOwnerId(documentId, getCurrentAuthorization())
+        .orElseThrow(() -> new NotFoundException("Document not found"));
   }
 
   private String getCurrentAuthorization() {
@@ -0,0 +1,67 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.blob.BlobStore;
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.document.repository.DocumentVersionRepository;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Moves versions written before the blob store into it, once per process in id order. Each row is
+// swapped in its own transaction so a version is never left pointing at a half-written blob.
+@Component
+@Slf4j
+public class VersionBlobMigrationJob {
+
+  private final DocumentVersionRepository versionRepository;
+  private final BlobStore blobStore;
+  private final ContentCompressor compressor;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean enabled;
+  private final int batchSize;
+
+  private UUID cursor = new UUID(0, 0);
+  private boolean finished;
+  private long migrated;
+
+  public VersionBlobMigrationJob(
+      DocumentVersionRepository versionRepository,
+      BlobStore blobStore,
+      ContentCompressor compressor,
+      TransactionTemplate transactionTemplate,
+      @Value("${blob.migration.enabled:true}") boolean enabled,
+      @Value("${blob.migration.batch-size:50}") int batchSize) {
+    this.versionRepository = versionRepository;
+    this.blobStore = blobStore;
+    this.compressor = compressor;
+    this.transactionTemplate = transactionTemplate;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+  }
+
+  @Scheduled(fixedDelayString = "${blob.migration.interval:PT10S}")
+  public void migrateBatch() {
+    if (!enabled || finished) return;
+    List<UUID> ids = versionRepository.findIdsWithoutBlob(cursor, batchSize);
+    for (UUID id : ids) {
+      Integer moved = transactionTemplate.execute(status -> {
+        byte[] raw = compressor.decode(versionRepository.findStoredStateById(id));
+        if (raw == null || raw.length == 0) return 0;
+        int updated = versionRepository.moveStateToBlob(id, blobStore.put(raw), raw.length);
+        // Another instance moved it first; roll back so the extra blob reference is not kept.
+        if (updated == 0) status.setRollbackOnly();
+        return updated;
+      });
+      if (moved != null) migrated += moved;
+    }
+    if (!ids.isEmpty()) cursor = ids.get(ids.size() - 1);
+    if (ids.size() < batchSize) {
+      finished = true;
+      log.info("Version blob migration finished: {} rows moved", migrated);
+    }
+  }
+}
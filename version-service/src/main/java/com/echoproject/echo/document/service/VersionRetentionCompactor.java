@@ -0,0 +1,158 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.blob.BlobStore;
+import com.echoproject.echo.common.concurrent.AdvisoryLocks;
+import com.echoproject.echo.document.domain.RetentionPolicy;
+import com.echoproject.echo.document.domain.RetentionPolicy.VersionStamp;
+import com.echoproject.echo.document.repository.DocumentVersionRepository;
+import com.echoproject.echo.document.repository.DocumentVersionRepository.VersionSummary;
+import com.echoproject.echo.document.repository.DocumentVersionWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Applies the retention policy to every document's history off the request path. Documents are
+// taken batch-size at a time, in id order; each batch is one transaction that locks their
+// counters, rebases surviving deltas whose base goes, and deletes the expired rows in one
+// statement. One replica runs at a time, under an advisory lock.
+@Component
+@Slf4j
+public class VersionRetentionCompactor {
+
+  private static final int LOCK_NAMESPACE = 0x72657465;
+
+  private final DocumentVersionRepository versionRepository;
+  private final DocumentVersionWriter versionWriter;
+  private final VersionStateStore versionStateStore;
+  private final BlobStore blobStore;
+  private final AdvisoryLocks advisoryLocks;
+  private final TransactionTemplate transactionTemplate;
+  private final RetentionPolicy policy;
+  private final boolean enabled;
+  private final int batchSize;
+
+  private final Counter deletedRows;
+  private final Counter releasedBytes;
+  private final Counter rebasedBytes;
+  private final DistributionSummary runRows;
+  private final DistributionSummary runBytes;
+  private final Timer runTimer;
+
+  public VersionRetentionCompactor(
+      DocumentVersionRepository versionRepository,
+      DocumentVersionWriter versionWriter,
+      VersionStateStore versionStateStore,
+      BlobStore blobStore,
+      AdvisoryLocks advisoryLocks,
+      TransactionTemplate transactionTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${version.retention.enabled:true}") boolean enabled,
+      @Value("${version.retention.tiers:PT1H:PT0S,P1D:PT1H,P30D:P1D}") String tiers,
+      @Value("${version.retention.batch-size:100}") int batchSize) {
+    this.versionRepository = versionRepository;
+    this.versionWriter = versionWriter;
+    this.versionStateStore = versionStateStore;
+    this.blobStore = blobStore;
+    this.advisoryLocks = advisoryLocks;
+    this.transactionTemplate = transactionTemplate;
+    this.policy = RetentionPolicy.parse(tiers);
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.deletedRows = Counter.builder("version.retention.deleted").register(meterRegistry);
+    this.releasedBytes = Counter.builder("version.retention.bytes").tag("kind", "released").baseUnit("bytes")
+        .description("Stored bytes of blobs left unreferenced, freed by the next blob collection")
+        .register(meterRegistry);
+    this.rebasedBytes = Counter.builder("version.retention.bytes").tag("kind", "rebased").baseUnit("bytes")
+        .description("Keyframes written for surviving versions whose delta base was deleted")
+        .register(meterRegistry);
+    this.runRows = DistributionSummary.builder("version.retention.run.rows").register(meterRegistry);
+    this.runBytes = DistributionSummary.builder("version.retention.run.bytes").baseUnit("bytes")
+        .description("Released minus rebased bytes per run")
+        .register(meterRegistry);
+    this.runTimer = Timer.builder("version.retention.run").register(meterRegistry);
+  }
+
+  private record BatchResult(int rows, long released, long rebased) {}
+
+  @Scheduled(fixedDelayString = "${version.retention.interval:PT10M}")
+  public void compact() {
+    if (!enabled) return;
+    Optional<AdvisoryLocks.Lock> lock = advisoryLocks.tryLock(LOCK_NAMESPACE, 0);
+    if (lock.isEmpty()) return;
+    try (AdvisoryLocks.Lock held = lock.get()) {
+      runTimer.record(this::run);
+    }
+  }
+
+  private void run() {
+    LocalDateTime now = versionWriter.databaseTime();
+    LocalDateTime olderThan = now.minus(policy.keepAllFor());
+    UUID cursor = new UUID(0, 0);
+    int rows = 0;
+    long released = 0;
+    long rebased = 0;
+    List<UUID> documentIds;
+    do {
+      documentIds = versionRepository.findRetentionCandidates(cursor, olderThan, batchSize);
+      if (documentIds.isEmpty()) break;
+      List<UUID> batch = documentIds;
+      BatchResult result = transactionTemplate.execute(status -> compactBatch(batch, now));
+      rows += result.rows();
+      released += result.released();
+      rebased += result.rebased();
+      cursor = documentIds.get(documentIds.size() - 1);
+    } while (documentIds.size() >= batchSize);
+    deletedRows.increment(rows);
+    releasedBytes.increment(released);
+    rebasedBytes.increment(rebased);
+    runRows.record(rows);
+    runBytes.record(Math.max(0, released - rebased));
+    if (rows > 0) log.info("Version retention deleted {} versions, released {} bytes, rebased {} bytes", rows, released, rebased);
+  }
+
+  private BatchResult compactBatch(List<UUID> documentIds, LocalDateTime now) {
+    versionWriter.lockCounters(documentIds);
+    Map<UUID, List<VersionSummary>> byDocument = versionRepository.findSummariesByDocumentIdIn(documentIds).stream()
+        .collect(Collectors.groupingBy(VersionSummary::getDocumentId));
+    Set<UUID> expiredIds = new HashSet<>();
+    Map<UUID, Integer> deletedByDocument = new HashMap<>();
+    Set<String> releasedHashes = new HashSet<>();
+    long rebased = 0;
+    for (List<VersionSummary> versions : byDocument.values()) {
+      Set<UUID> expired = policy.expired(versions.stream()
+          .map(v -> new VersionStamp(v.getId(), v.getCreatedAt(),
+              !v.isAutomatic() || (v.getLabel() != null && !v.getLabel().isBlank())))
+          .toList(), now);
+      if (expired.isEmpty()) continue;
+      List<VersionSummary> removed = versions.stream().filter(v -> expired.contains(v.getId())).toList();
+      rebased += versionStateStore.detach(removed, versions);
+      for (VersionSummary version : removed) {
+        if (version.getBlobHash() == null) continue;
+        blobStore.release(version.getBlobHash());
+        releasedHashes.add(version.getBlobHash());
+      }
+      expiredIds.addAll(expired);
+      deletedByDocument.put(versions.get(0).getDocumentId(), expired.size());
+    }
+    if (expiredIds.isEmpty()) return new BatchResult(0, 0, 0);
+    // One statement, so a chain of expired deltas can go together without tripping the base FK.
+    int rows = versionWriter.deleteVersions(expiredIds);
+    versionWriter.releaseSlots(deletedByDocument);
+    return new BatchResult(rows, blobStore.unreferencedBytes(releasedHashes), rebased);
+  }
+}
@@ -0,0 +1,213 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.compression.ContentHash;
+import com.echoproject.echo.common.concurrent.AdvisoryLocks;
+import com.echoproject.echo.document.client.DocumentActivity;
+import com.echoproject.echo.document.client.DocumentServiceClient;
+import com.echoproject.echo.document.domain.SnapshotPolicy;
+import com.echoproject.echo.document.repository.DocumentVersionRepository;
+import com.echoproject.echo.document.repository.SnapshotStateRepository;
+import com.echoproject.echo.document.repository.SnapshotStateRepository.Cursor;
+import com.echoproject.echo.document.repository.SnapshotStateRepository.DueSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
+
+// Takes versions of changed documents without anyone asking. Each tick one replica pulls the
+// document-service activity feed into document_snapshot_state, then every replica hands the
+// documents its policy says are due to a small worker pool. A worker snapshots a document only
+// while holding its advisory lock, so replicas never take the same snapshot twice.
+@Component
+@Slf4j
+public class VersionSnapshotScheduler implements DisposableBean {
+
+  private static final int LOCK_NAMESPACE = 0x76657273;
+  private static final int POLL_LOCK_KEY = 0;
+  // Per-document locks get their own namespace, so no document can hash onto the poll lock.
+  private static final int DOCUMENT_LOCK_NAMESPACE = 0x736e6170;
+
+  private final DocumentServiceClient documentClient;
+  private final SnapshotStateRepository stateRepository;
+  private final DocumentVersionRepository versionRepository;
+  private final DocumentVersionService versionService;
+  private final AdvisoryLocks advisoryLocks;
+  private final SnapshotPolicy policy;
+  private final boolean enabled;
+  private final int pollSize;
+  private final Duration pollOverlap;
+  private final int batchSize;
+  private final ThreadPoolTaskExecutor workers;
+  private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+  private final Counter created;
+  private final Counter unchanged;
+  private final Counter gone;
+  private final Counter contended;
+  private final Counter deferred;
+  private final Counter failed;
+  private final Timer snapshotTimer;
+
+  public VersionSnapshotScheduler(
+      DocumentServiceClient documentClient,
+      SnapshotStateRepository stateRepository,
+      DocumentVersionRepository versionRepository,
+      DocumentVersionService versionService,
+      AdvisoryLocks advisoryLocks,
+      MeterRegistry meterRegistry,
+      @Value("${version.snapshots.enabled:true}") boolean enabled,
+      @Value("${version.snapshots.max-age:PT30M}") Duration maxAge,
+      @Value("${version.snapshots.quiet-period:PT2M}") Duration quietPeriod,
+      @Value("${version.snapshots.max-changed-bytes:1MB}") DataSize maxChangedBytes,
+      @Value("${version.snapshots.min-interval:PT5M}") Duration minInterval,
+      @Value("${version.snapshots.workers:2}") int workerCount,
+      @Value("${version.snapshots.poll-size:500}") int pollSize,
+      @Value("${version.snapshots.poll-overlap:PT1M}") Duration pollOverlap,
+      @Value("${version.snapshots.batch-size:50}") int batchSize) {
+    this.documentClient = documentClient;
+    this.stateRepository = stateRepository;
+    this.versionRepository = versionRepository;
+    this.versionService = versionService;
+    this.advisoryLocks = advisoryLocks;
+    this.policy = new SnapshotPolicy(maxAge, quietPeriod, maxChangedBytes.toBytes(), minInterval);
+    this.enabled = enabled;
+    this.pollSize = pollSize;
+    this.pollOverlap = pollOverlap;
+    this.batchSize = batchSize;
+    // Each worker holds two pooled connections while it runs: its lock and its transaction.
+    ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+    pool.setCorePoolSize(workerCount);
+    pool.setMaxPoolSize(workerCount);
+    pool.setQueueCapacity(batchSize);
+    pool.setThreadNamePrefix("snapshot-");
+    pool.initialize();
+    this.workers = pool;
+    this.created = Counter.builder("version.snapshots").tag("outcome", "created").register(meterRegistry);
+    this.unchanged = Counter.builder("version.snapshots").tag("outcome", "unchanged").register(meterRegistry);
+    this.gone = Counter.builder("version.snapshots").tag("outcome", "gone").register(meterRegistry);
+    this.contended = Counter.builder("version.snapshots").tag("outcome", "contended").register(meterRegistry);
+    this.deferred = Counter.builder("version.snapshots").tag("outcome", "deferred").register(meterRegistry);
+    this.failed = Counter.builder("version.snapshots").tag("outcome", "failed").register(meterRegistry);
+    this.snapshotTimer = Timer.builder("version.snapshots.duration").register(meterRegistry);
+    meterRegistry.gauge("version.snapshots.in-flight", inFlight, Set::size);
+  }
+
+  @Scheduled(fixedDelayString = "${version.snapshots.interval:PT15S}")
+  public void run() {
+    if (!enabled) return;
+    try {
+      poll();
+    } catch (RestClientException e) {
+      log.warn("Document activity poll failed: {}", e.getMessage());
+    }
+    dispatch();
+  }
+
+  @Override
+  public void destroy() {
+    workers.shutdown();
+  }
+
+  // Replicas that find the poll lock taken skip straight to dispatching what is already recorded.
+  private void poll() {
+    Optional<AdvisoryLocks.Lock> lock = advisoryLocks.tryLock(LOCK_NAMESPACE, POLL_LOCK_KEY);
+    if (lock.isEmpty()) return;
+    try (AdvisoryLocks.Lock held = lock.get()) {
+      Cursor cursor = stateRepository.findCursor(pollOverlap).orElse(null);
+      List<DocumentActivity> activity;
+      do {
+        activity = documentClient.getActivity(
+            cursor != null ? cursor.updatedAt() : null, cursor != null ? cursor.documentId() : null, pollSize);
+        stateRepository.recordActivity(activity);
+        if (!activity.isEmpty()) {
+          DocumentActivity last = activity.get(activity.size() - 1);
+          cursor = new Cursor(last.updatedAt(), last.documentId());
+        }
+      } while (activity.size() >= pollSize);
+    }
+  }
+
+  private void dispatch() {
+    for (DueSnapshot due : stateRepository.findDue(policy, batchSize)) {
+      UUID documentId = due.documentId();
+      if (!inFlight.add(documentId)) continue;
+      try {
+        workers.execute(() -> snapshot(documentId));
+      } catch (TaskRejectedException e) {
+        // Workers are still busy with earlier ticks; the rest stay due for the next one.
+        inFlight.remove(documentId);
+        break;
+      }
+    }
+  }
+
+  private void snapshot(UUID documentId) {
+    try {
+      Optional<AdvisoryLocks.Lock> lock = advisoryLocks.tryLock(DOCUMENT_LOCK_NAMESPACE, documentId.hashCode());
+      if (lock.isEmpty()) {
+        contended.increment();
+        return;
+      }
+      try (AdvisoryLocks.Lock held = lock.get()) {
+        // Another replica may have taken the snapshot between our query and the lock.
+        DueSnapshot due = stateRepository.findIfDue(documentId, policy).orElse(null);
+        if (due == null) return;
+        stateRepository.markAttempted(documentId);
+        snapshotTimer.record(() -> take(due));
+      }
+    } catch (RuntimeException e) {
+      failed.increment();
+      log.warn("Automatic snapshot of document {} failed", documentId, e);
+    } finally {
+      inFlight.remove(documentId);
+    }
+  }
+
+  private void take(DueSnapshot due) {
+    UUID documentId = due.documentId();
+    String latestHash = versionRepository.findLatestContentHash(documentId);
+    // The feed's hash covers the whole content only once the update log is folded in.
+    if (!due.pendingUpdates() && due.contentHash() != null && due.contentHash().equals(latestHash)) {
+      stateRepository.markSnapshotted(documentId, due.writtenBytes(), false);
+      unchanged.increment();
+      return;
+    }
+    byte[] state;
+    try {
+      state = documentClient.getContentAs(documentId, due.ownerId()).orElse(null);
+    } catch (HttpServerErrorException.ServiceUnavailable e) {
+      // Updates not folded into the content yet; the document stays due and is retried later.
+      deferred.increment();
+      return;
+    }
+    if (state == null) {
+      stateRepository.delete(documentId);
+      gone.increment();
+      return;
+    }
+    if (state.length == 0 || ContentHash.of(state).equals(latestHash)) {
+      stateRepository.markSnapshotted(documentId, due.writtenBytes(), false);
+      unchanged.increment();
+      return;
+    }
+    // Marked automatic, so retention may thin it; versions users create are always kept.
+    versionService.storeVersion(documentId, state, due.ownerId(), null, true);
+    stateRepository.markSnapshotted(documentId, due.writtenBytes(), true);
+    created.increment();
+  }
+}
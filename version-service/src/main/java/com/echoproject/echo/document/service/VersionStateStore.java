@@ -0,0 +1,150 @@
+package com.echoproject.echo.document.service;
+
+import com.echoproject.echo.common.blob.BinaryDelta;
+import com.echoproject.echo.common.blob.BlobStore;
+import com.echoproject.echo.common.compression.ContentCompressor;
+import com.echoproject.echo.common.exception.NotFoundException;
+import com.echoproject.echo.document.repository.DocumentVersionRepository;
+import com.echoproject.echo.document.repository.DocumentVersionRepository.VersionSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+// Versions of a document form chains: a keyframe holding the full state, followed by up to
+// keyframe-interval - 1 versions each stored as a delta against the one before. Reading a delta
+// replays its chain from the keyframe, whose reconstructed state is cached. A version's content
+// never changes, so cached states stay valid however its row is later re-encoded.
+@Component
+public class VersionStateStore {
+
+  private final DocumentVersionRepository versionRepository;
+  private final BlobStore blobStore;
+  private final ContentCompressor compressor;
+  private final int keyframeInterval;
+  private final Cache<UUID, byte[]> keyframes;
+  private final Counter storedKeyframes;
+  private final Counter storedDeltas;
+  private final Counter logicalBytes;
+  private final Counter encodedBytes;
+
+  public VersionStateStore(
+      DocumentVersionRepository versionRepository,
+      BlobStore blobStore,
+      ContentCompressor compressor,
+      MeterRegistry meterRegistry,
+      @Value("${version.delta.keyframe-interval:5}") int keyframeInterval,
+      @Value("${version.delta.keyframe-cache.max-bytes:64MB}") DataSize keyframeCacheBytes) {
+    this.versionRepository = versionRepository;
+    this.blobStore = blobStore;
+    this.compressor = compressor;
+    this.keyframeInterval = Math.max(1, keyframeInterval);
+    this.keyframes = Caffeine.newBuilder()
+        .maximumWeight(keyframeCacheBytes.toBytes())
+        .weigher((UUID id, byte[] state) -> state.length)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, keyframes, "version.keyframes");
+    this.storedKeyframes = Counter.builder("version.stored").tag("type", "keyframe").register(meterRegistry);
+    this.storedDeltas = Counter.builder("version.stored").tag("type", "delta").register(meterRegistry);
+    this.logicalBytes = Counter.builder("version.storage.bytes").tag("kind", "logical").baseUnit("bytes").register(meterRegistry);
+    this.encodedBytes = Counter.builder("version.storage.bytes").tag("kind", "encoded").baseUnit("bytes").register(meterRegistry);
+  }
+
+  public record EncodedVersion(String blobHash, UUID baseVersionId, long rawLength) {}
+
+  // versions are the document's existing versions, newest first. A delta is only kept when it is
+  // well under the full state; otherwise the new version starts a chain of its own.
+  public EncodedVersion encode(byte[] state, List<VersionSummary> versions) {
+    logicalBytes.increment(state.length);
+    VersionSummary latest = versions.isEmpty() ? null : versions.get(0);
+    if (latest != null && latest.getBlobHash() != null) {
+      Map<UUID, VersionSummary> byId = index(versions);
+      if (chainLength(latest, byId) < keyframeInterval) {
+        byte[] delta = BinaryDelta.encode(read(latest, byId), state);
+        if (delta.length < state.length / 2) {
+          storedDeltas.increment();
+          encodedBytes.increment(delta.length);
+          return new EncodedVersion(blobStore.put(delta), latest.getId(), state.length);
+        }
+      }
+    }
+    storedKeyframes.increment();
+    encodedBytes.increment(state.length);
+    return new EncodedVersion(blobStore.put(state), null, state.length);
+  }
+
+  public byte[] read(VersionSummary version) {
+    if (version.getBaseVersionId() == null) return keyframe(version);
+    return read(version, index(versionRepository.findSummariesByDocumentId(version.getDocumentId())));
+  }
+
+  // Must run before the version's row is deleted: anything stored as a delta against it is
+  // rebased onto a keyframe of its own, and the old delta blob is released.
+  public void detach(VersionSummary version, List<VersionSummary> versions) {
+    detach(List.of(version), versions);
+  }
+
+  // Same for many versions of one document at once. Returns the bytes of the keyframes written.
+  public long detach(Collection<VersionSummary> removed, List<VersionSummary> versions) {
+    Set<UUID> removedIds = removed.stream().map(VersionSummary::getId).collect(Collectors.toSet());
+    Map<UUID, VersionSummary> byId = index(versions);
+    long written = 0;
+    for (VersionSummary dependent : versions) {
+      if (removedIds.contains(dependent.getId()) || !removedIds.contains(dependent.getBaseVersionId())) continue;
+      byte[] state = read(dependent, byId);
+      versionRepository.rebaseToKeyframe(dependent.getId(), blobStore.put(state));
+      blobStore.release(dependent.getBlobHash());
+      keyframes.put(dependent.getId(), state);
+      storedKeyframes.increment();
+      written += state.length;
+    }
+    removedIds.forEach(keyframes::invalidate);
+    return written;
+  }
+
+  private byte[] read(VersionSummary version, Map<UUID, VersionSummary> byId) {
+    Deque<VersionSummary> deltas = new ArrayDeque<>();
+    VersionSummary current = version;
+    while (current.getBaseVersionId() != null) {
+      deltas.push(current);
+      current = byId.get(current.getBaseVersionId());
+      if (current == null) throw new NotFoundException("Base version missing for version " + version.getId());
+    }
+    byte[] state = keyframe(current);
+    while (!deltas.isEmpty()) {
+      state = BinaryDelta.apply(state, blobStore.read(deltas.pop().getBlobHash()));
+    }
+    return state;
+  }
+
+  // Versions written before the blob store still hold their state inline.
+  private byte[] keyframe(VersionSummary version) {
+    if (version.getBlobHash() == null) return compressor.decode(versionRepository.findStoredStateById(version.getId()));
+    return keyframes.get(version.getId(), id -> blobStore.read(version.getBlobHash()));
+  }
+
+  private static int chainLength(VersionSummary version, Map<UUID, VersionSummary> byId) {
+    int length = 1;
+    VersionSummary current = version;
+    while (current.getBaseVersionId() != null && (current = byId.get(current.getBaseVersionId())) != null) length++;
+    return length;
+  }
+
+  private static Map<UUID, VersionSummary> index(List<VersionSummary> versions) {
+    return versions.stream().collect(Collectors.toMap(VersionSummary::getId, Function.identity()));
+  }
+}
@@ -28,7 +28,7 @@ public class SecurityConfig {
         .cors(AbstractHttpConfigurer::disable)
         .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)).accessDeniedHandler(new AccessDeniedHandlerImpl()))
         .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-        .authorizeHttpRequests(auth -> auth.requestMatchers("/api/health/**").permitAll().anyRequest().authenticated())
+        .authorizeHttpRequests(auth -> auth.requestMatchers("/api/health/**", "/actuator/**").permitAll().anyRequest().authenticated())
         .addFilterBefore(headerAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
     return http.build();
   }
@@ -1,14 +1,14 @@
 package com.echoproject.echo.security.filter;
 
 import com.echoproject.echo.security.service.CustomUserDetails;
-import com.echoproject.echo.user.client.UserServiceClient;
+import com.echoproject.echo.security.service.IdentitySignature;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.UUID;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -18,25 +18,26 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Component
 public class HeaderAuthenticationFilter extends OncePerRequestFilter {
 
-  private final UserServiceClient userClient;
+  private final IdentitySignature identitySignature;
 
-  public HeaderAuthenticationFilter(UserServiceClient userClient) {
-    this.userClient = userClient;
+  public HeaderAuthenticationFilter(IdentitySignature identitySignature) {
+    this.identitySignature = identitySignature;
   }
 
   @Override
   protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
       throws ServletException, IOException {
-    String username = request.getHeader("X-Username");
-    if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-      var userOpt = userClient.getByUsername(username);
-      if (userOpt.isPresent()) {
-        var u = userOpt.get();
-        CustomUserDetails details = new CustomUserDetails(u.id(), u.username(), "", new ArrayList<>());
-        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
-        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-        SecurityContextHolder.getContext().setAuthentication(authToken);
-      }
+    String userId = request.getHeader(IdentitySignature.USER_ID_HEADER);
+    String username = request.getHeader(IdentitySignature.USERNAME_HEADER);
+    String issuedAt = request.getHeader(IdentitySignature.ISSUED_AT_HEADER);
+    String signature = request.getHeader(IdentitySignature.SIGNATURE_HEADER);
+    if (SecurityContextHolder.getContext().getAuthentication() == null
+        && identitySignature.isValid(
+            userId, username, issuedAt, signature, request.getMethod(), request.getRequestURI())) {
+      CustomUserDetails details = new CustomUserDetails(UUID.fromString(userId), username, "", new ArrayList<>());
+      UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
+      authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+      SecurityContextHolder.getContext().setAuthentication(authToken);
     }
     filterChain.doFilter(request, response);
   }
@@ -0,0 +1,104 @@
+package com.echoproject.echo.user.client;
+
+import com.echoproject.echo.user.client.UserServiceClient.UserSummary;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+// Coalesces summary lookups from concurrent callers into one request. The caller that opens a
+// batch waits out the window and then sends it on its own thread; a batch that reaches the
+// maximum size is sent immediately by whoever filled it. Everyone else just waits on futures.
+class UserSummaryBatcher {
+
+  private final BiFunction<Set<UUID>, String, Map<UUID, UserSummary>> fetcher;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private Batch open;
+
+  UserSummaryBatcher(BiFunction<Set<UUID>, String, Map<UUID, UserSummary>> fetcher, Duration window, int maxBatchSize) {
+    this.fetcher = fetcher;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  Map<UUID, UserSummary> load(Collection<UUID> ids, String authorization) {
+    Map<UUID, CompletableFuture<UserSummary>> futures = new HashMap<>();
+    List<Batch> led = new ArrayList<>();
+    List<Batch> full = new ArrayList<>();
+    synchronized (this) {
+      for (UUID id : ids) {
+        if (open == null) {
+          open = new Batch(authorization);
+          led.add(open);
+        }
+        futures.put(id, open.waiters.computeIfAbsent(id, k -> new CompletableFuture<>()));
+        if (open.waiters.size() >= maxBatchSize) {
+          full.add(open);
+          open = null;
+        }
+      }
+    }
+    full.forEach(this::dispatch);
+    led.removeAll(full);
+    if (!led.isEmpty()) {
+      if (windowNanos > 0) LockSupport.parkNanos(windowNanos);
+      synchronized (this) {
+        if (led.contains(open)) open = null;
+      }
+      // A led batch is only ever dispatched by its leader unless it filled up.
+      led.removeIf(batch -> batch.dispatched);
+      led.forEach(this::dispatch);
+    }
+
+    Map<UUID, UserSummary> result = new HashMap<>();
+    futures.forEach((id, future) -> {
+      UserSummary summary = await(future);
+      if (summary != null) result.put(id, summary);
+    });
+    return result;
+  }
+
+  private void dispatch(Batch batch) {
+    synchronized (this) {
+      if (batch.dispatched) return;
+      batch.dispatched = true;
+    }
+    try {
+      Map<UUID, UserSummary> loaded = fetcher.apply(batch.waiters.keySet(), batch.authorization);
+      batch.waiters.forEach((id, future) -> future.complete(loaded.get(id)));
+    } catch (Throwable e) {
+      batch.waiters.values().forEach(future -> future.completeExceptionally(e));
+      if (e instanceof Error err) throw err;
+    }
+  }
+
+  private static UserSummary await(CompletableFuture<UserSummary> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw e;
+    }
+  }
+
+  private static final class Batch {
+    // Any caller's credentials are enough to read summaries, so the first one is used.
+    private final String authorization;
+    private final Map<UUID, CompletableFuture<UserSummary>> waiters = new LinkedHashMap<>();
+    private boolean dispatched;
+
+    private Batch(String authorization) {
+      this.authorization = authorization;
+    }
+  }
+}
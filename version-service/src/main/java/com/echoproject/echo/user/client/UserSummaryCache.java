@@ -0,0 +1,142 @@
+package com.echoproject.echo.user.client;
+
+import com.echoproject.echo.user.client.UserServiceClient.UserSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+// Entries are fresh for ttl, refreshed in the background once older than refresh-after, and
+// served stale for up to max-stale when user-service cannot be reached. Background refreshes run
+// on their own small pool and are dropped when it is saturated; the next read retries them.
+@Component
+@Slf4j
+public class UserSummaryCache implements DisposableBean {
+
+  private final Cache<UUID, Entry> cache;
+  private final Duration ttl;
+  private final Duration refreshAfter;
+  private final Set<UUID> refreshing = ConcurrentHashMap.newKeySet();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter staleServed;
+  private final Timer loadTimer;
+  private final ThreadPoolTaskExecutor refreshExecutor;
+
+  public UserSummaryCache(
+      MeterRegistry meterRegistry,
+      @Value("${user.summaries.cache.max-size:10000}") long maxSize,
+      @Value("${user.summaries.cache.ttl:PT5M}") Duration ttl,
+      @Value("${user.summaries.cache.refresh-after:PT4M}") Duration refreshAfter,
+      @Value("${user.summaries.cache.max-stale:PT1H}") Duration maxStale,
+      @Value("${user.summaries.cache.refresh-threads:2}") int refreshThreads,
+      @Value("${user.summaries.cache.refresh-queue-capacity:64}") int refreshQueueCapacity) {
+    this.ttl = ttl;
+    this.refreshAfter = refreshAfter;
+    this.cache = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(maxStale).recordStats().build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "user.summaries");
+    this.hits = meterRegistry.counter("user.summaries.lookups", "result", "hit");
+    this.misses = meterRegistry.counter("user.summaries.lookups", "result", "miss");
+    this.staleServed = meterRegistry.counter("user.summaries.lookups", "result", "stale");
+    this.loadTimer = Timer.builder("user.summaries.load").publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+    this.refreshExecutor = new ThreadPoolTaskExecutor();
+    refreshExecutor.setCorePoolSize(refreshThreads);
+    refreshExecutor.setMaxPoolSize(refreshThreads);
+    refreshExecutor.setQueueCapacity(refreshQueueCapacity);
+    refreshExecutor.setThreadNamePrefix("user-summary-refresh-");
+    refreshExecutor.initialize();
+  }
+
+  // The loader is called with only the ids that are missing or expired and may throw on failure.
+  public Map<UUID, UserSummary> getAll(Collection<UUID> ids, Function<Set<UUID>, Map<UUID, UserSummary>> loader) {
+    Instant now = Instant.now();
+    Map<UUID, UserSummary> result = new HashMap<>();
+    Map<UUID, UserSummary> stale = new HashMap<>();
+    Set<UUID> missing = new HashSet<>();
+    Set<UUID> refreshAhead = new HashSet<>();
+    for (UUID id : ids) {
+      Entry entry = cache.getIfPresent(id);
+      if (entry == null) {
+        missing.add(id);
+      } else if (!now.isBefore(entry.loadedAt().plus(ttl))) {
+        missing.add(id);
+        stale.put(id, entry.summary());
+      } else {
+        result.put(id, entry.summary());
+        if (!now.isBefore(entry.loadedAt().plus(refreshAfter))) refreshAhead.add(id);
+      }
+    }
+    hits.increment(result.size());
+    misses.increment(missing.size());
+
+    if (!missing.isEmpty()) {
+      try {
+        result.putAll(load(missing, loader));
+      } catch (RuntimeException e) {
+        log.warn("User summary lookup failed for {} ids, serving {} stale entries: {}", missing.size(), stale.size(), e.getMessage());
+        staleServed.increment(stale.size());
+        result.putAll(stale);
+      }
+    }
+    if (!refreshAhead.isEmpty()) refreshAsync(refreshAhead, loader);
+    return result;
+  }
+
+  public void invalidate(UUID id) {
+    cache.invalidate(id);
+  }
+
+  private Map<UUID, UserSummary> load(Set<UUID> ids, Function<Set<UUID>, Map<UUID, UserSummary>> loader) {
+    Map<UUID, UserSummary> loaded = loadTimer.record(() -> loader.apply(ids));
+    Instant loadedAt = Instant.now();
+    loaded.forEach((id, summary) -> cache.put(id, new Entry(summary, loadedAt)));
+    return loaded;
+  }
+
+  private void refreshAsync(Set<UUID> ids, Function<Set<UUID>, Map<UUID, UserSummary>> loader) {
+    Set<UUID> claimed = new HashSet<>();
+    for (UUID id : ids) {
+      if (refreshing.add(id)) claimed.add(id);
+    }
+    if (claimed.isEmpty()) return;
+    try {
+      refreshExecutor.execute(() -> {
+        try {
+          load(claimed, loader);
+        } catch (RuntimeException e) {
+          log.debug("Background refresh of {} user summaries failed: {}", claimed.size(), e.getMessage());
+        } finally {
+          refreshing.removeAll(claimed);
+        }
+      });
+    } catch (TaskRejectedException e) {
+      refreshing.removeAll(claimed);
+      log.debug("Refresh pool saturated, skipping background refresh of {} user summaries", claimed.size());
+    }
+  }
+
+  @Override
+  public void destroy() {
+    refreshExecutor.shutdown();
+  }
+
+  private record Entry(UserSummary summary, Instant loadedAt) {}
+}
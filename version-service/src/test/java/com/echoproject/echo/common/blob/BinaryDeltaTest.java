@@ -0,0 +1,59 @@
+package com.echoproject.echo.common.blob;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class BinaryDeltaTest {
+
+  private final Random random = new Random(11);
+
+  @Test
+  void smallEditsProduceSmallDeltas() {
+    byte[] base = random(1024 * 1024);
+    byte[] target = base.clone();
+    // An overwrite, an insertion and a deletion, about 3KB of change in total.
+    System.arraycopy(random(1000), 0, target, 100_000, 1000);
+    target = splice(target, 400_000, 0, random(1000));
+    target = splice(target, 800_000, 1000, new byte[0]);
+
+    byte[] delta = BinaryDelta.encode(base, target);
+
+    assertThat(BinaryDelta.apply(base, delta)).isEqualTo(target);
+    assertThat(delta.length).isLessThan(16 * 1024);
+  }
+
+  @Test
+  void roundTripsUnrelatedAndEmptyContent() {
+    byte[] base = random(50_000);
+    byte[] unrelated = random(70_000);
+
+    assertThat(BinaryDelta.apply(base, BinaryDelta.encode(base, unrelated))).isEqualTo(unrelated);
+    assertThat(BinaryDelta.apply(base, BinaryDelta.encode(base, new byte[0]))).isEmpty();
+    assertThat(BinaryDelta.apply(new byte[0], BinaryDelta.encode(new byte[0], base))).isEqualTo(base);
+  }
+
+  @Test
+  void rejectsAnotherBase() {
+    byte[] base = random(10_000);
+    byte[] delta = BinaryDelta.encode(base, random(10_000));
+
+    assertThatThrownBy(() -> BinaryDelta.apply(random(9_999), delta)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private byte[] random(int size) {
+    byte[] data = new byte[size];
+    random.nextBytes(data);
+    return data;
+  }
+
+  private static byte[] splice(byte[] data, int at, int remove, byte[] insert) {
+    byte[] result = new byte[data.length - remove + insert.length];
+    System.arraycopy(data, 0, result, 0, at);
+    System.arraycopy(insert, 0, result, at, insert.length);
+    System.arraycopy(data, at + remove, result, at + insert.length, data.length - at - remove);
+    return result;
+  }
+}
@@ -0,0 +1,227 @@
+package com.echoproject.echo.common.blob;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.echoproject.echo.common.compression.ContentCompressor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+// Needs a real Postgres; runs in a throwaway schema, e.g.
+//   mvn test -Dtest=BlobStoreGarbageCollectionTest -Dversion.it.jdbc-url=jdbc:postgresql://localhost/versiondb \
+//     -Dversion.it.user=myuser -Dversion.it.password=secret
+@EnabledIfSystemProperty(named = "version.it.jdbc-url", matches = ".+")
+class BlobStoreGarbageCollectionTest {
+
+  private static final int GC_LIMIT = 1000;
+
+  private final String schema = "blob_it_" + UUID.randomUUID().toString().replace("-", "");
+  private JdbcTemplate admin;
+  private JdbcTemplate jdbcTemplate;
+  private TransactionTemplate transactionTemplate;
+  private BlobStore store;
+
+  @BeforeEach
+  void createSchema() {
+    String url = System.getProperty("version.it.jdbc-url");
+    admin = new JdbcTemplate(dataSource(url));
+    admin.execute("CREATE SCHEMA " + schema);
+    DriverManagerDataSource dataSource = dataSource(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    jdbcTemplate.execute("CREATE TABLE blobs (hash VARCHAR(64) PRIMARY KEY, manifest BYTEA NOT NULL, "
+        + "raw_length BIGINT NOT NULL, ref_count INTEGER NOT NULL, created_at TIMESTAMP NOT NULL)");
+    jdbcTemplate.execute("CREATE TABLE blob_chunks (hash VARCHAR(64) PRIMARY KEY, data BYTEA NOT NULL, "
+        + "raw_length INTEGER NOT NULL, ref_count INTEGER NOT NULL, created_at TIMESTAMP NOT NULL)");
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    store = new BlobStore(jdbcTemplate, new ContentCompressor(registry, "zstd", 256), registry,
+        DataSize.ofKilobytes(2), DataSize.ofKilobytes(8), DataSize.ofKilobytes(64));
+  }
+
+  @AfterEach
+  void dropSchema() {
+    admin.execute("DROP SCHEMA " + schema + " CASCADE");
+  }
+
+  @Test
+  void sharedAndOverlappingContentIsCollectedOnlyOnceUnreferenced() {
+    byte[] first = random(256 * 1024, 1);
+    byte[] second = first.clone();
+    Arrays.fill(second, 100_000, 100_100, (byte) 7);
+
+    String firstHash = put(first);
+    assertThat(put(first)).isEqualTo(firstHash);
+    String secondHash = put(second);
+    assertConsistent();
+    assertThat(chunkCount()).isLessThan(2 * distinctChunks(firstHash).size());
+
+    release(firstHash);
+    store.collectGarbage(GC_LIMIT);
+    assertThat(store.read(firstHash)).isEqualTo(first);
+    assertConsistent();
+
+    release(firstHash);
+    store.collectGarbage(GC_LIMIT);
+    assertThat(blobHashes()).containsExactly(secondHash);
+    assertThat(store.read(secondHash)).isEqualTo(second);
+    assertConsistent();
+
+    release(secondHash);
+    store.collectGarbage(GC_LIMIT);
+    assertThat(blobHashes()).isEmpty();
+    assertThat(chunkCount()).isZero();
+  }
+
+  @Test
+  void putWaitsForACollectionHoldingTheBlobAndStoresItAgain() throws Exception {
+    byte[] content = random(64 * 1024, 2);
+    String hash = put(content);
+    release(hash);
+
+    CountDownLatch collected = new CountDownLatch(1);
+    CountDownLatch commit = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      Future<Integer> collection = pool.submit(() -> transactionTemplate.execute(status -> {
+        int deleted = store.collectGarbage(GC_LIMIT);
+        collected.countDown();
+        await(commit);
+        return deleted;
+      }));
+      assertThat(collected.await(10, TimeUnit.SECONDS)).isTrue();
+      Future<String> revive = pool.submit(() -> put(content));
+      awaitBlockedOnLock();
+      commit.countDown();
+
+      assertThat(collection.get(10, TimeUnit.SECONDS)).isPositive();
+      assertThat(revive.get(10, TimeUnit.SECONDS)).isEqualTo(hash);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertThat(refCount(hash)).isEqualTo(1);
+    assertThat(store.read(hash)).isEqualTo(content);
+    assertConsistent();
+  }
+
+  @Test
+  void collectionSkipsABlobAPutIsReviving() throws Exception {
+    byte[] content = random(64 * 1024, 3);
+    String hash = put(content);
+    release(hash);
+
+    CountDownLatch revived = new CountDownLatch(1);
+    CountDownLatch commit = new CountDownLatch(1);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> revive = pool.submit(() -> transactionTemplate.execute(status -> {
+        String stored = store.put(content);
+        revived.countDown();
+        await(commit);
+        return stored;
+      }));
+      assertThat(revived.await(10, TimeUnit.SECONDS)).isTrue();
+      int deleted = transactionTemplate.execute(status -> store.collectGarbage(GC_LIMIT));
+      assertThat(deleted).isZero();
+      commit.countDown();
+      assertThat(revive.get(10, TimeUnit.SECONDS)).isEqualTo(hash);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    store.collectGarbage(GC_LIMIT);
+    assertThat(refCount(hash)).isEqualTo(1);
+    assertThat(store.read(hash)).isEqualTo(content);
+    assertConsistent();
+  }
+
+  // Every blob row still holds its chunks, and each chunk counts exactly the blobs listing it.
+  private void assertConsistent() {
+    Map<String, Integer> expected = new HashMap<>();
+    for (String blobHash : blobHashes()) {
+      for (String chunk : distinctChunks(blobHash)) expected.merge(chunk, 1, Integer::sum);
+    }
+    Map<String, Integer> actual = new HashMap<>();
+    jdbcTemplate.query("SELECT hash, ref_count FROM blob_chunks",
+        rs -> { actual.put(rs.getString(1), rs.getInt(2)); });
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  private Set<String> distinctChunks(String blobHash) {
+    byte[] manifest = jdbcTemplate.queryForObject("SELECT manifest FROM blobs WHERE hash = ?", byte[].class, blobHash);
+    Set<String> chunks = new LinkedHashSet<>();
+    for (int i = 0; i < manifest.length; i += 32) chunks.add(HexFormat.of().formatHex(manifest, i, i + 32));
+    return chunks;
+  }
+
+  // The put is parked on the row lock the collection holds, not merely slow to start.
+  private void awaitBlockedOnLock() throws InterruptedException {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      Integer waiting = admin.queryForObject("SELECT count(*) FROM pg_stat_activity "
+          + "WHERE wait_event_type = 'Lock' AND query LIKE 'INSERT INTO blobs%'", Integer.class);
+      if (waiting != null && waiting > 0) return;
+      Thread.sleep(50);
+    }
+    throw new AssertionError("put never waited on the collection");
+  }
+
+  private String put(byte[] content) {
+    return transactionTemplate.execute(status -> store.put(content));
+  }
+
+  private void release(String hash) {
+    transactionTemplate.executeWithoutResult(status -> store.release(hash));
+  }
+
+  private List<String> blobHashes() {
+    return jdbcTemplate.queryForList("SELECT hash FROM blobs", String.class);
+  }
+
+  private int chunkCount() {
+    return jdbcTemplate.queryForObject("SELECT count(*) FROM blob_chunks", Integer.class);
+  }
+
+  private int refCount(String hash) {
+    return jdbcTemplate.queryForObject("SELECT ref_count FROM blobs WHERE hash = ?", Integer.class, hash);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      if (!latch.await(10, TimeUnit.SECONDS)) throw new AssertionError("timed out");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] random(int size, long seed) {
+    byte[] data = new byte[size];
+    new Random(seed).nextBytes(data);
+    return data;
+  }
+
+  private static DriverManagerDataSource dataSource(String url) {
+    return new DriverManagerDataSource(url, System.getProperty("version.it.user"), System.getProperty("version.it.password"));
+  }
+}
@@ -0,0 +1,89 @@
+package com.echoproject.echo.common.blob;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ContentDefinedChunkerTest {
+
+  private static final int MIN = 2 * 1024;
+  private static final int AVERAGE = 8 * 1024;
+  private static final int MAX = 64 * 1024;
+
+  private final ContentDefinedChunker chunker = new ContentDefinedChunker(MIN, AVERAGE, MAX);
+
+  @Test
+  void chunksCoverTheInputWithinSizeBounds() {
+    byte[] data = random(1024 * 1024, 1);
+
+    int[] cuts = chunker.cutPoints(data);
+
+    assertThat(cuts[cuts.length - 1]).isEqualTo(data.length);
+    int start = 0;
+    for (int i = 0; i < cuts.length; i++) {
+      int size = cuts[i] - start;
+      assertThat(size).isLessThanOrEqualTo(MAX);
+      if (i < cuts.length - 1) assertThat(size).isGreaterThanOrEqualTo(MIN);
+      start = cuts[i];
+    }
+    assertThat(cuts.length).isBetween(data.length / (4 * AVERAGE), data.length / MIN);
+  }
+
+  @Test
+  void smallInputIsOneChunk() {
+    assertThat(chunker.cutPoints(new byte[100])).containsExactly(100);
+    assertThat(chunker.cutPoints(new byte[0])).isEmpty();
+  }
+
+  // Fifteen versions of a 1MB document, each with a small edit over the last, should store at
+  // least ten times less than fifteen full copies.
+  @Test
+  void nearIdenticalVersionsShareMostChunks() {
+    Random random = new Random(7);
+    byte[] document = random(1024 * 1024, 2);
+    Map<String, Integer> unique = new HashMap<>();
+    long total = 0;
+    for (int version = 0; version < 15; version++) {
+      document = insert(document, random.nextInt(document.length), random(200, version + 10));
+      total += document.length;
+      int start = 0;
+      for (int cut : chunker.cutPoints(document)) {
+        unique.putIfAbsent(sha256(document, start, cut), cut - start);
+        start = cut;
+      }
+    }
+
+    long stored = unique.values().stream().mapToLong(Integer::longValue).sum();
+    assertThat(stored).isLessThan(total / 10);
+  }
+
+  private static byte[] insert(byte[] data, int at, byte[] inserted) {
+    byte[] result = new byte[data.length + inserted.length];
+    System.arraycopy(data, 0, result, 0, at);
+    System.arraycopy(inserted, 0, result, at, inserted.length);
+    System.arraycopy(data, at, result, at + inserted.length, data.length - at);
+    return result;
+  }
+
+  private static byte[] random(int size, long seed) {
+    byte[] data = new byte[size];
+    new Random(seed).nextBytes(data);
+    return data;
+  }
+
+  private static String sha256(byte[] data, int from, int to) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(data, from, to - from);
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.echoproject.echo.document.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.echoproject.echo.document.domain.RetentionPolicy.VersionStamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class RetentionPolicyTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.parse("2024-06-15T12:30:00");
+  private final RetentionPolicy policy = RetentionPolicy.parse("PT1H:PT0S, P1D:PT1H, P30D:P1D");
+
+  @Test
+  void thinsEachTierToOneVersionPerWindow() {
+    List<VersionStamp> versions = new ArrayList<>();
+    // Every ten minutes for three days.
+    for (int minutes = 0; minutes <= 3 * 24 * 60; minutes += 10) versions.add(version(NOW.minusMinutes(minutes), false));
+
+    var expired = policy.expired(versions, NOW);
+    var kept = versions.stream().filter(v -> !expired.contains(v.id())).map(VersionStamp::createdAt).toList();
+
+    // The last hour untouched, then the newest of each hour for a day, then the newest of each day.
+    assertThat(kept).filteredOn(t -> !t.isBefore(NOW.minusHours(1))).hasSize(7);
+    assertThat(kept).filteredOn(t -> t.isBefore(NOW.minusHours(1)) && !t.isBefore(NOW.minusDays(1))).hasSizeBetween(23, 24);
+    assertThat(kept).filteredOn(t -> t.isBefore(NOW.minusDays(1))).hasSizeBetween(2, 3);
+  }
+
+  @Test
+  void keepsPinnedAndLatestVersionsPastTheLastTier() {
+    VersionStamp pinned = version(NOW.minusDays(400), true);
+    VersionStamp dropped = version(NOW.minusDays(300), false);
+    VersionStamp latest = version(NOW.minusDays(200), false);
+
+    assertThat(policy.expired(List.of(pinned, dropped, latest), NOW)).containsExactly(dropped.id());
+    assertThat(policy.keepAllFor()).isEqualTo(Duration.ofHours(1));
+  }
+
+  @Test
+  void rejectsMalformedTiers() {
+    assertThatThrownBy(() -> RetentionPolicy.parse("P1D")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RetentionPolicy.parse("")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static VersionStamp version(LocalDateTime createdAt, boolean pinned) {
+    return new VersionStamp(UUID.randomUUID(), createdAt, pinned);
+  }
+}
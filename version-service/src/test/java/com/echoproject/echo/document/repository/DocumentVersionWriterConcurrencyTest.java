@@ -0,0 +1,152 @@
+package com.echoproject.echo.document.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.echoproject.echo.common.blob.BlobStore;
+import com.echoproject.echo.common.concurrent.AdvisoryLocks;
+import com.echoproject.echo.document.repository.DocumentVersionRepository.VersionSummary;
+import com.echoproject.echo.document.service.DocumentVersionService;
+import com.echoproject.echo.document.service.VersionRetentionCompactor;
+import com.echoproject.echo.document.service.VersionStateStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Needs a real Postgres; the application runs its Liquibase changelog into a throwaway schema, e.g.
+//   mvn test -Dtest=DocumentVersionWriterConcurrencyTest -Dversion.it.jdbc-url=jdbc:postgresql://localhost/versiondb \
+//     -Dversion.it.user=myuser -Dversion.it.password=secret
+// Versions are created through DocumentVersionService.storeVersion and thinned by
+// VersionRetentionCompactor, concurrently, as in production.
+@EnabledIfSystemProperty(named = "version.it.jdbc-url", matches = ".+")
+@SpringBootTest(properties = {"version.snapshots.enabled=false", "version.retention.enabled=false"})
+class DocumentVersionWriterConcurrencyTest {
+
+  private static final String SCHEMA = "version_it_" + UUID.randomUUID().toString().replace("-", "");
+  private static final int CREATORS = 40;
+  private static final int BACKDATED = 30;
+  private static final int LATE_CREATORS = 10;
+
+  @Autowired private DocumentVersionService versionService;
+  @Autowired private DocumentVersionRepository versionRepository;
+  @Autowired private DocumentVersionWriter versionWriter;
+  @Autowired private VersionStateStore versionStateStore;
+  @Autowired private BlobStore blobStore;
+  @Autowired private AdvisoryLocks advisoryLocks;
+  @Autowired private TransactionTemplate transactionTemplate;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  private final UUID documentId = UUID.randomUUID();
+  private final UUID userId = UUID.randomUUID();
+  private final byte[] baseState = random(64 * 1024);
+  private final Map<Integer, byte[]> stateByNumber = new ConcurrentHashMap<>();
+  private final Set<Integer> manualNumbers = ConcurrentHashMap.newKeySet();
+
+  @DynamicPropertySource
+  static void schema(DynamicPropertyRegistry registry) {
+    String url = System.getProperty("version.it.jdbc-url");
+    admin().execute("CREATE SCHEMA " + SCHEMA);
+    registry.add("spring.datasource.url", () -> url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+    registry.add("spring.datasource.username", () -> System.getProperty("version.it.user"));
+    registry.add("spring.datasource.password", () -> System.getProperty("version.it.password"));
+    registry.add("spring.liquibase.default-schema", () -> SCHEMA);
+  }
+
+  @AfterAll
+  static void dropSchema() {
+    admin().execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+  }
+
+  @Test
+  void parallelCreatorsGetDistinctNumbersAndRetentionKeepsCountersAndManualVersions() throws Exception {
+    List<Integer> drawn = new ArrayList<>(createInParallel(CREATORS, i -> i % 4 == 0, null));
+    jdbcTemplate.update("UPDATE document_versions SET created_at = created_at - interval '40 days' "
+        + "WHERE document_id = ? AND version_number <= ?", documentId, BACKDATED);
+
+    VersionRetentionCompactor compactor = new VersionRetentionCompactor(versionRepository, versionWriter,
+        versionStateStore, blobStore, advisoryLocks, transactionTemplate, new SimpleMeterRegistry(),
+        true, "PT1H:PT0S,P1D:PT1H,P30D:P1D", 100);
+    drawn.addAll(createInParallel(LATE_CREATORS, i -> false, compactor::compact));
+
+    assertThat(drawn).containsExactlyInAnyOrderElementsOf(
+        IntStream.rangeClosed(1, CREATORS + LATE_CREATORS).boxed().toList());
+    // Past the last tier only automatic snapshots go; manual versions stay whatever their age.
+    Set<Integer> expected = new HashSet<>(IntStream.rangeClosed(BACKDATED + 1, CREATORS + LATE_CREATORS).boxed().toList());
+    manualNumbers.stream().filter(n -> n <= BACKDATED).forEach(expected::add);
+    List<VersionSummary> survivors = versionRepository.findSummariesByDocumentId(documentId);
+    assertThat(survivors).extracting(VersionSummary::getVersionNumber).containsExactlyInAnyOrderElementsOf(expected);
+    for (VersionSummary version : survivors) {
+      assertThat(versionStateStore.read(version)).isEqualTo(stateByNumber.get(version.getVersionNumber()));
+    }
+    Map<String, Object> counter = jdbcTemplate.queryForMap(
+        "SELECT last_number, version_count FROM document_version_counters WHERE document_id = ?", documentId);
+    assertThat(counter).containsEntry("last_number", CREATORS + LATE_CREATORS)
+        .containsEntry("version_count", expected.size());
+  }
+
+  // Each creator stores a small edit of the same state, so most versions are stored as deltas.
+  private List<Integer> createInParallel(int creators, IntPredicate manual, Runnable alongside) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(creators + 1);
+    try {
+      List<Future<Integer>> numbers = new ArrayList<>();
+      for (int i = 0; i < creators; i++) {
+        int creator = i;
+        numbers.add(pool.submit(() -> {
+          start.await();
+          byte[] state = baseState.clone();
+          state[creator * 97 % state.length] ^= (byte) (creator + 1);
+          boolean isManual = manual.test(creator);
+          int number = versionService.storeVersion(documentId, state, userId, null, !isManual).versionNumber();
+          stateByNumber.put(number, state);
+          if (isManual) manualNumbers.add(number);
+          return number;
+        }));
+      }
+      Future<?> other = alongside != null ? pool.submit(() -> {
+        start.await();
+        alongside.run();
+        return null;
+      }) : null;
+      start.countDown();
+      List<Integer> drawn = new ArrayList<>();
+      for (Future<Integer> number : numbers) drawn.add(number.get());
+      if (other != null) other.get();
+      return drawn;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static byte[] random(int size) {
+    byte[] data = new byte[size];
+    new Random(7).nextBytes(data);
+    return data;
+  }
+
+  private static JdbcTemplate admin() {
+    return new JdbcTemplate(new DriverManagerDataSource(System.getProperty("version.it.jdbc-url"),
+        System.getProperty("version.it.user"), System.getProperty("version.it.password")));
+  }
+}
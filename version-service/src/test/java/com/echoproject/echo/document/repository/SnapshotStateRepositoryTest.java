@@ -0,0 +1,136 @@
+package com.echoproject.echo.document.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.echoproject.echo.document.client.DocumentActivity;
+import com.echoproject.echo.document.domain.SnapshotPolicy;
+import com.echoproject.echo.document.repository.SnapshotStateRepository.DueSnapshot;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+// Needs a real Postgres; runs in a throwaway schema, e.g.
+//   mvn test -Dtest=SnapshotStateRepositoryTest -Dversion.it.jdbc-url=jdbc:postgresql://localhost/versiondb \
+//     -Dversion.it.user=myuser -Dversion.it.password=secret
+@EnabledIfSystemProperty(named = "version.it.jdbc-url", matches = ".+")
+class SnapshotStateRepositoryTest {
+
+  private static final SnapshotPolicy POLICY =
+      new SnapshotPolicy(Duration.ofMinutes(30), Duration.ofMinutes(2), 1000, Duration.ofMinutes(5));
+
+  private final String schema = "version_it_" + UUID.randomUUID().toString().replace("-", "");
+  private final UUID documentId = UUID.randomUUID();
+  private final UUID ownerId = UUID.randomUUID();
+  private JdbcTemplate admin;
+  private JdbcTemplate jdbcTemplate;
+  private SnapshotStateRepository repository;
+
+  @BeforeEach
+  void createSchema() {
+    String url = System.getProperty("version.it.jdbc-url");
+    admin = new JdbcTemplate(dataSource(url));
+    admin.execute("CREATE SCHEMA " + schema);
+    jdbcTemplate = new JdbcTemplate(dataSource(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema));
+    jdbcTemplate.execute("CREATE TABLE document_snapshot_state (document_id UUID PRIMARY KEY, "
+        + "owner_id UUID NOT NULL, content_hash VARCHAR(64), pending_updates BOOLEAN NOT NULL, "
+        + "written_bytes BIGINT NOT NULL, snapshot_written_bytes BIGINT NOT NULL, source_updated_at TIMESTAMP NOT NULL, "
+        + "changed_at TIMESTAMP NOT NULL, dirty_since TIMESTAMP, attempted_at TIMESTAMP, snapshotted_at TIMESTAMP)");
+    repository = new SnapshotStateRepository(jdbcTemplate);
+  }
+
+  @AfterEach
+  void dropSchema() {
+    admin.execute("DROP SCHEMA " + schema + " CASCADE");
+  }
+
+  @Test
+  void changedDocumentIsDueOnceQuietOrOldOrLarge() {
+    record(100);
+    assertThat(isDirty()).isTrue();
+    assertThat(repository.findDue(POLICY, 10)).isEmpty();
+
+    backdate("changed_at", Duration.ofMinutes(3));
+    assertThat(repository.findDue(POLICY, 10)).extracting(DueSnapshot::documentId).containsExactly(documentId);
+
+    // Still being edited, but dirty for longer than maxAge.
+    record(200);
+    assertThat(repository.findDue(POLICY, 10)).isEmpty();
+    backdate("dirty_since", Duration.ofMinutes(31));
+    assertThat(repository.findIfDue(documentId, POLICY)).isPresent();
+
+    // A recent attempt holds the document back for minInterval, whatever else applies.
+    repository.markAttempted(documentId);
+    assertThat(repository.findIfDue(documentId, POLICY)).isEmpty();
+  }
+
+  @Test
+  void largeChangeIsDueImmediately() {
+    record(999);
+    assertThat(repository.findIfDue(documentId, POLICY)).isEmpty();
+
+    record(1000);
+    assertThat(repository.findIfDue(documentId, POLICY))
+        .hasValueSatisfying(due -> assertThat(due.writtenBytes()).isEqualTo(1000));
+  }
+
+  @Test
+  void snapshotCleansTheDocumentOnlyUpToWhereItWasTaken() {
+    record(500);
+    repository.markSnapshotted(documentId, 500, true);
+    assertThat(isDirty()).isFalse();
+    assertThat(jdbcTemplate.queryForObject("SELECT snapshotted_at IS NOT NULL FROM document_snapshot_state",
+        Boolean.class)).isTrue();
+
+    // The same reading recorded again (an overlapping poll) leaves it clean.
+    record(500);
+    assertThat(isDirty()).isFalse();
+
+    // Written to while the snapshot was being taken: stays dirty from that change on.
+    record(800);
+    repository.markSnapshotted(documentId, 700, false);
+    assertThat(isDirty()).isTrue();
+    record(1700);
+    assertThat(repository.findIfDue(documentId, POLICY)).isPresent();
+  }
+
+  @Test
+  void cursorStartsTheOverlapBeforeTheNewestActivity() {
+    assertThat(repository.findCursor(Duration.ofMinutes(1))).isEmpty();
+    LocalDateTime newest = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    repository.recordActivity(List.of(
+        activity(UUID.randomUUID(), 10, newest.minusMinutes(5)), activity(documentId, 10, newest)));
+
+    assertThat(repository.findCursor(Duration.ofMinutes(1)))
+        .hasValueSatisfying(cursor -> assertThat(cursor.updatedAt()).isEqualTo(newest.minusMinutes(1)));
+  }
+
+  private void record(long writtenBytes) {
+    repository.recordActivity(List.of(activity(documentId, writtenBytes, LocalDateTime.now())));
+  }
+
+  private DocumentActivity activity(UUID id, long writtenBytes, LocalDateTime updatedAt) {
+    return new DocumentActivity(id, ownerId, "hash-" + writtenBytes, 0, 0, writtenBytes, updatedAt);
+  }
+
+  private void backdate(String column, Duration by) {
+    jdbcTemplate.update("UPDATE document_snapshot_state SET " + column + " = " + column
+        + " - ? * interval '1 millisecond'", by.toMillis());
+  }
+
+  private boolean isDirty() {
+    return jdbcTemplate.queryForObject(
+        "SELECT dirty_since IS NOT NULL FROM document_snapshot_state WHERE document_id = ?", Boolean.class, documentId);
+  }
+
+  private static DriverManagerDataSource dataSource(String url) {
+    return new DriverManagerDataSource(url, System.getProperty("version.it.user"), System.getProperty("version.it.password"));
+  }
+}
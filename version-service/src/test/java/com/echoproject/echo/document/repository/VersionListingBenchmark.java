@@ -0,0 +1,98 @@
+package com.echoproject.echo.document.repository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+// Manual benchmark of the version panel query against a real Postgres. Works on a temporary
+// table shaped like document_versions, so any scratch database will do, e.g.
+//   mvn test -Dtest=VersionListingBenchmark -Dversion.benchmark.jdbc-url=jdbc:postgresql://localhost/versiondb \
+//     -Dversion.benchmark.user=myuser -Dversion.benchmark.password=secret
+@EnabledIfSystemProperty(named = "version.benchmark.jdbc-url", matches = ".+")
+class VersionListingBenchmark {
+
+  private static final int VERSIONS = 15;
+  private static final int STATE_BYTES = 10 * 1024 * 1024;
+  private static final int ROUNDS = 20;
+
+  // What findByDocumentIdOrderByVersionNumberDesc selected: every column, state included.
+  private static final String ENTITY_LISTING = "SELECT id, document_id, version_number, state, created_by, label, "
+      + "created_at, blob_hash, base_version_id, raw_length FROM document_versions WHERE document_id = ? "
+      + "ORDER BY version_number DESC";
+  // What findSummariesByDocumentId selects.
+  private static final String SUMMARY_LISTING = "SELECT id, document_id, version_number, label, created_by, "
+      + "created_at, blob_hash, base_version_id, raw_length FROM document_versions WHERE document_id = ? "
+      + "ORDER BY version_number DESC";
+
+  @Test
+  void compareListingQueries() throws SQLException {
+    try (Connection con = DriverManager.getConnection(System.getProperty("version.benchmark.jdbc-url"),
+        System.getProperty("version.benchmark.user"), System.getProperty("version.benchmark.password"))) {
+      UUID documentId = UUID.randomUUID();
+      seed(con, documentId);
+      System.out.printf("%d versions x %d MB%n", VERSIONS, STATE_BYTES >> 20);
+      System.out.printf("%-10s %14s %12s%n", "query", "bytes/listing", "ms/listing");
+      report(con, "entity", ENTITY_LISTING, documentId);
+      report(con, "summary", SUMMARY_LISTING, documentId);
+    }
+  }
+
+  private static void seed(Connection con, UUID documentId) throws SQLException {
+    try (var st = con.createStatement()) {
+      st.execute("CREATE TEMPORARY TABLE document_versions (id UUID PRIMARY KEY, document_id UUID NOT NULL, "
+          + "version_number INTEGER NOT NULL, state BYTEA, created_by UUID NOT NULL, label VARCHAR(255), "
+          + "created_at TIMESTAMP NOT NULL, blob_hash VARCHAR(64), base_version_id UUID, raw_length BIGINT)");
+    }
+    Random random = new Random(42);
+    byte[] state = new byte[STATE_BYTES];
+    try (PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO document_versions VALUES (?, ?, ?, ?, ?, ?, ?, NULL, NULL, NULL)")) {
+      for (int i = 1; i <= VERSIONS; i++) {
+        random.nextBytes(state);
+        ps.setObject(1, UUID.randomUUID());
+        ps.setObject(2, documentId);
+        ps.setInt(3, i);
+        ps.setBytes(4, state);
+        ps.setObject(5, UUID.randomUUID());
+        ps.setString(6, "v" + i);
+        ps.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now()));
+        ps.executeUpdate();
+      }
+    }
+  }
+
+  private static void report(Connection con, String name, String sql, UUID documentId) throws SQLException {
+    long bytes = 0;
+    long nanos = 0;
+    for (int round = 0; round <= ROUNDS; round++) {
+      long start = System.nanoTime();
+      long read = 0;
+      try (PreparedStatement ps = con.prepareStatement(sql)) {
+        ps.setObject(1, documentId);
+        try (ResultSet rs = ps.executeQuery()) {
+          int columns = rs.getMetaData().getColumnCount();
+          while (rs.next()) {
+            for (int c = 1; c <= columns; c++) {
+              byte[] value = rs.getBytes(c);
+              if (value != null) read += value.length;
+            }
+          }
+        }
+      }
+      // Round 0 warms the connection and the page cache.
+      if (round > 0) {
+        nanos += System.nanoTime() - start;
+        bytes = read;
+      }
+    }
+    System.out.printf("%-10s %14d %12.1f%n", name, bytes, nanos / 1e6 / ROUNDS);
+  }
+}
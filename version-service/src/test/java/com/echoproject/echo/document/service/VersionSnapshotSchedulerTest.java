@@ -0,0 +1,113 @@
+package com.echoproject.echo.document.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.echoproject.echo.common.concurrent.AdvisoryLocks;
+import com.echoproject.echo.document.client.DocumentActivity;
+import com.echoproject.echo.document.client.DocumentServiceClient;
+import com.echoproject.echo.document.repository.DocumentVersionRepository;
+import com.echoproject.echo.document.repository.SnapshotStateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.unit.DataSize;
+
+// Needs a real Postgres; runs in a throwaway schema, e.g.
+//   mvn test -Dtest=VersionSnapshotSchedulerTest -Dversion.it.jdbc-url=jdbc:postgresql://localhost/versiondb \
+//     -Dversion.it.user=myuser -Dversion.it.password=secret
+@EnabledIfSystemProperty(named = "version.it.jdbc-url", matches = ".+")
+class VersionSnapshotSchedulerTest {
+
+  private static final Duration OVERLAP = Duration.ofMinutes(1);
+
+  private final String schema = "version_it_" + UUID.randomUUID().toString().replace("-", "");
+  private final UUID ownerId = UUID.randomUUID();
+  private final DocumentServiceClient documentClient = mock(DocumentServiceClient.class);
+  private final DocumentVersionService versionService = mock(DocumentVersionService.class);
+  private JdbcTemplate admin;
+  private JdbcTemplate jdbcTemplate;
+  private VersionSnapshotScheduler scheduler;
+
+  @BeforeEach
+  void createSchema() {
+    String url = System.getProperty("version.it.jdbc-url");
+    admin = new JdbcTemplate(dataSource(url));
+    admin.execute("CREATE SCHEMA " + schema);
+    DriverManagerDataSource dataSource = dataSource(url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.execute("CREATE TABLE document_snapshot_state (document_id UUID PRIMARY KEY, "
+        + "owner_id UUID NOT NULL, content_hash VARCHAR(64), pending_updates BOOLEAN NOT NULL, "
+        + "written_bytes BIGINT NOT NULL, snapshot_written_bytes BIGINT NOT NULL, source_updated_at TIMESTAMP NOT NULL, "
+        + "changed_at TIMESTAMP NOT NULL, dirty_since TIMESTAMP, attempted_at TIMESTAMP, snapshotted_at TIMESTAMP)");
+    scheduler = new VersionSnapshotScheduler(documentClient, new SnapshotStateRepository(jdbcTemplate),
+        mock(DocumentVersionRepository.class), versionService, new AdvisoryLocks(dataSource), new SimpleMeterRegistry(),
+        true, Duration.ofMinutes(30), Duration.ofMinutes(2), DataSize.ofBytes(1000), Duration.ofMinutes(5),
+        1, 100, OVERLAP, 10);
+  }
+
+  @AfterEach
+  void dropSchema() {
+    scheduler.destroy();
+    admin.execute("DROP SCHEMA " + schema + " CASCADE");
+  }
+
+  @Test
+  void lateCommittedChangeIsPickedUpByTheOverlapAndSnapshotted() {
+    LocalDateTime newest = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    DocumentActivity early = activity(UUID.randomUUID(), 10, newest);
+    // Started before `early` but committed after it was polled.
+    DocumentActivity late = activity(UUID.randomUUID(), 5000, newest.minusSeconds(10));
+    when(documentClient.getActivity(isNull(), isNull(), anyInt())).thenReturn(List.of(early));
+    when(documentClient.getActivity(eq(newest.minus(OVERLAP)), isNull(), anyInt())).thenReturn(List.of(late, early));
+    when(documentClient.getContentAs(late.documentId(), ownerId)).thenReturn(Optional.of(new byte[] {1, 2, 3}));
+
+    scheduler.run();
+    scheduler.run();
+
+    verify(versionService, timeout(5000)).storeVersion(eq(late.documentId()), any(), eq(ownerId), isNull(), eq(true));
+    verify(versionService, never()).storeVersion(eq(early.documentId()), any(), any(), any(), anyBoolean());
+    awaitClean(late.documentId());
+  }
+
+  private void awaitClean(UUID documentId) {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      Boolean dirty = jdbcTemplate.queryForObject(
+          "SELECT dirty_since IS NOT NULL FROM document_snapshot_state WHERE document_id = ?", Boolean.class, documentId);
+      if (Boolean.FALSE.equals(dirty)) return;
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+    throw new AssertionError("snapshot of " + documentId + " was never marked");
+  }
+
+  private DocumentActivity activity(UUID documentId, long writtenBytes, LocalDateTime updatedAt) {
+    return new DocumentActivity(documentId, ownerId, "hash-" + writtenBytes, 0, 0, writtenBytes, updatedAt);
+  }
+
+  private static DriverManagerDataSource dataSource(String url) {
+    return new DriverManagerDataSource(url, System.getProperty("version.it.user"), System.getProperty("version.it.password"));
+  }
+}